@@ -2,7 +2,12 @@ package analyzer;
 import util.*;
 import graph.*;
 import data.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 /*
  * A program that takes movie and reviewer data and allows users to build
@@ -13,27 +18,35 @@ import java.util.Scanner;
  */
 public class MovieLensAnalyzer {
 	
+	//the adjacency rules of the two graphs, used by the parallel builder
+	private static final ParallelGraphBuilder.AdjacencyRule AGREE_33_PERCENT =
+			(agree, count) -> (double)agree/count >= 0.33;
+	private static final ParallelGraphBuilder.AdjacencyRule AGREE_12 =
+			(agree, count) -> agree >= 12;
+	
+	//landmarks of the distance oracle that answers path queries
+	private static final int LANDMARKS = 16;
+	
+	//how many of the largest communities are listed, and how many of their movies
+	private static final int COMMUNITIES_SHOWN = 5;
+	private static final int MEMBERS_SHOWN = 3;
+	
 	//build graph where u and v are adjacent if at least 33.0% of the users who rated u gave the same rating to v.
+	//each edge is weighted with that fraction, the agreement strength
 	private static GraphIfc<Movie> build33PercentAgreeGraph(DataLoader data) {
 		GraphIfc<Movie> output = new Graph<Movie>();
 		//nodes
 		for (Movie movie : data.getMovies().values()){
 			output.addVertex(movie);
 		}
-		//edges
+		//edges, only movies that share an agreeing reviewer with u can be adjacent to it
+		CoRatingCounts counts = AgreementCounter.create(data.getMovies(), data.getRatingMatrix()).countAll();
 		for (Movie movie : data.getMovies().values()){
-			for (Movie movie2 : data.getMovies().values()) {
-				if (movie2.equals(movie)) continue;
-				double count = 0;
-				double agree = 0;
-				for (Integer reviewerID : movie.getRatings().keySet()) {
-					count++;
-					if (movie2.getRating(reviewerID) == movie.getRating(reviewerID)) {
-						agree++;
-					}
-				}
+			double count = movie.numRatings();
+			for (int k = counts.start(movie.getMovieId()); k < counts.end(movie.getMovieId()); k++) {
+				double agree = counts.agreement(k);
 				if (agree/count >= 0.33) {
-					output.addEdge(movie, movie2);
+					output.addEdge(movie, data.getMovies().get(counts.partner(k)), (float)(agree/count));
 				}
 			}
 		}
@@ -41,40 +54,40 @@ public class MovieLensAnalyzer {
 	}
 	
 	//build graph where u and v are adjacent if 12 users who gave a rating to u gave the same rating to v
-		private static GraphIfc<Movie> build12AgreeGraph(DataLoader data) {
-			GraphIfc<Movie> output = new Graph<Movie>();
-			//nodes
-			for (Movie movie : data.getMovies().values()){
-				output.addVertex(movie);
-			}
-			//edges
-			for (Movie movie : data.getMovies().values()){
-				for (Movie movie2 : data.getMovies().values()) {
-					if (movie2.equals(movie)) continue;
-					double agree = 0;
-					for (Integer reviewerID : movie.getRatings().keySet()) {
-						if (movie2.getRating(reviewerID) == movie.getRating(reviewerID)) {
-							agree++;
-						}
-					}
-					if (agree >= 12) {
-						output.addEdge(movie, movie2);
-					}
+	//each edge is weighted with the fraction of the users who rated u that agree, as in the graph above
+	private static GraphIfc<Movie> build12AgreeGraph(DataLoader data) {
+		GraphIfc<Movie> output = new Graph<Movie>();
+		//nodes
+		for (Movie movie : data.getMovies().values()){
+			output.addVertex(movie);
+		}
+		//edges
+		CoRatingCounts counts = AgreementCounter.create(data.getMovies(), data.getRatingMatrix()).countAll();
+		for (Movie movie : data.getMovies().values()){
+			for (int k = counts.start(movie.getMovieId()); k < counts.end(movie.getMovieId()); k++) {
+				if (counts.agreement(k) >= 12) {
+					output.addEdge(movie, data.getMovies().get(counts.partner(k)), (float)((double)counts.agreement(k) / movie.numRatings()));
 				}
 			}
-			return output;
 		}
+		return output;
+	}
 	
-	//Give the user options for exploring the generated graph
-	private static void exploreGraph(GraphIfc<Movie> graph, DataLoader data) {
+	//Give the user options for exploring the generated graph, running parallel work on the pool.
+	//The analysis can be restricted to a k-core of the graph, and graph and oracle then refer to the core.
+	private static void exploreGraph(GraphIfc<Movie> graph, DataLoader data, ForkJoinPool pool, DistanceOracle<Movie> oracle) {
+		GraphIfc<Movie> fullGraph = graph;
 		Scanner scan = new Scanner(System.in);
 		String input = "";
-		while (!input.equals("5")) {
+		while (!input.equals("8")) {
 			System.out.println("[Option 1] Print out statistics about the graph");
 			System.out.println("[Option 2] Print node information");
 			System.out.println("[Option 3] Display shortest path between two nodes");
 			System.out.println("[Option 4] Search for movies by title");
-			System.out.println("[Option 5] Quit");
+			System.out.println("[Option 5] Rank the most central movies");
+			System.out.println("[Option 6] Find taste communities");
+			System.out.println("[Option 7] Restrict the analysis to a k-core");
+			System.out.println("[Option 8] Quit");
 			input = scan.nextLine();
 			if (input.equals("1")) {
 				System.out.println("Graph statistics:");
@@ -93,86 +106,240 @@ public class MovieLensAnalyzer {
 					}
 				}
 				System.out.println("\t Max. degree = " + maxDeg + " (node " + maxDegNode + ")");
-				int[][] shortestPaths = GraphAlgorithms.floydWarshall(graph);
-				maxDeg = 0;
-				maxDegNode = 0;
-				int maxDegNode2 = 0;
-				double count = 0;
-				double avgPathLength = 0;
-				for (int i = 0; i < v; i++) {
-					for (int j = 0; j < v; j++) {
-						if (shortestPaths[i][j] <= v) {
-							count ++;
-							avgPathLength += shortestPaths[i][j];
-							if (shortestPaths[i][j] > maxDeg) {
-								maxDeg = shortestPaths[i][j];
-								maxDegNode = i;
-								maxDegNode2 = j;
-							}
-						}
+				Components<Movie> weak = GraphAlgorithms.weaklyConnectedComponents(graph, pool);
+				Components<Movie> strong = GraphAlgorithms.stronglyConnectedComponents(graph);
+				System.out.println("\t Weakly connected components = " + weak.count() + " (sizes: " + describeSizes(weak) + ")");
+				System.out.println("\t Strongly connected components = " + strong.count() + " (sizes: " + describeSizes(strong) + ")");
+				TriangleCounter<Movie> triangles = TriangleCounter.count(graph, pool); //edges taken as undirected
+				System.out.println("\t Triangles = " + triangles.getTriangles());
+				System.out.println("\t Avg. clustering coefficient = " + triangles.getAverageClustering());
+				System.out.println("\t Transitivity = " + triangles.getTransitivity());
+				System.out.println("Path statistics: [1] exact, [2] approximate within a time limit, [3] approximate within a relative error");
+				String mode = scan.nextLine();
+				if (mode.equals("2") || mode.equals("3")) {
+					ApproximatePathStatistics.Budget budget;
+					if (mode.equals("2")) {
+						System.out.println("Enter time limit in milliseconds:");
+						budget = ApproximatePathStatistics.Budget.time(scan.nextLong());
+					} else {
+						System.out.println("Enter relative error (e.g. 0.05):");
+						budget = ApproximatePathStatistics.Budget.relativeError(scan.nextDouble());
+					}
+					scan.nextLine();
+					ApproximatePathStatistics<Movie> paths = ApproximatePathStatistics.estimate(graph, pool, budget, System.nanoTime());
+					if (paths.getDiameterStart() == null) {
+						System.out.println("\t Diameter: 0 (no movie can reach another)");
+					} else if (paths.isDiameterExact()) {
+						System.out.println("\t Diameter: " + paths.getDiameterLowerBound() + "(from " + paths.getDiameterStart().getMovieId()
+								+ " to " + paths.getDiameterEnd().getMovieId() + ")");
+					} else {
+						System.out.println("\t Diameter: between " + paths.getDiameterLowerBound() + " and " + paths.getDiameterUpperBound()
+								+ " (longest found from " + paths.getDiameterStart().getMovieId() + " to " + paths.getDiameterEnd().getMovieId() + ")");
 					}
+					System.out.println("\t Avg. path length: " + paths.getAveragePathLength() + " +/- " + paths.getConfidenceHalfWidth()
+							+ " (95% confidence, " + paths.getSamples() + " of " + v + " movies sampled)");
+				} else {
+					PathStatistics<Movie> paths = PathStatistics.compute(graph, pool); //64 searches per pass, no V x V matrix
+					if (paths.getDiameterStart() == null) {
+						System.out.println("\t Diameter: 0 (no movie can reach another)");
+					} else {
+						System.out.println("\t Diameter: " + paths.getDiameter() + "(from " + paths.getDiameterStart().getMovieId()
+								+ " to " + paths.getDiameterEnd().getMovieId() + ")");
+					}
+					System.out.println("\t Radius: " + paths.getRadius());
+					System.out.println("\t Avg. path length: " + paths.getAveragePathLength());
 				}
-				avgPathLength = (avgPathLength/count);
-				System.out.println("\t Diameter: " + maxDeg + "(from " + (maxDegNode+1) + " to " + (maxDegNode2+1) + ")");
-				System.out.println("\t Avg. path length: " + avgPathLength);
 			} else if (input.equals("2")) {
-				System.out.println("Enter movie id (1-" + graph.numVertices() + "):");
+				System.out.println("Enter movie id (1-" + fullGraph.numVertices() + "):");
 				int id = scan.nextInt();
 				scan.nextLine();
 				Movie movie = data.getMovies().get(id);
+				if (!graph.containsNode(movie)) {
+					System.out.println("Movie " + id + " is not in the k-core being analyzed");
+					continue;
+				}
 				System.out.println(movie);
 				System.out.println("Neighbors:");
 				for (Movie movie2 : graph.getNeighbors(movie)) {
 					System.out.println("\t" + movie2.getTitle());
 				}
 			} else if (input.equals("3")) {
-				System.out.println("Enter starting node (1-" + graph.numVertices() + "):");
+				System.out.println("Enter starting node (1-" + fullGraph.numVertices() + "):");
 				int start = scan.nextInt();
 				scan.nextLine();
-				System.out.println("Enter ending node (1-" + graph.numVertices() + "):");
+				System.out.println("Enter ending node (1-" + fullGraph.numVertices() + "):");
 				int end = scan.nextInt();
 				scan.nextLine();
 
+				System.out.println("Path: [1] fewest movies, [2] most similar chain (largest product of agreements)");
+				String mode = scan.nextLine();
+
 				Movie startingmovie = data.getMovies().get(start);
-				int[] path = GraphAlgorithms.Dijkstras(startingmovie, graph);
-				if (path[end-1] == -1) { //path is 0-index-based
+				Movie endingmovie = data.getMovies().get(end);
+				List<Movie> path;
+				if (!graph.containsNode(startingmovie) || !graph.containsNode(endingmovie)) {
+					System.out.println("Both movies must be in the k-core being analyzed");
+					continue;
+				}
+				if (!GraphAlgorithms.isReachable(graph, startingmovie, endingmovie, pool)) { //usually decided by the cached components
+					path = new ArrayList<Movie>();
+				} else if (mode.equals("2")) {
+					path = GraphAlgorithms.mostSimilarPath(graph, startingmovie, endingmovie, pool); //parallel delta-stepping
+				} else {
+					path = oracle.shortestPath(startingmovie, endingmovie); //A* guided by the landmark distances
+				}
+				if (path.isEmpty()) {
 					System.out.println("The start movie and the end movie are not connected!");
 				}
-				int counter = end; //counter is 1-index based
-				while (counter != start){
-					Movie movie1 = data.getMovies().get(counter); //checks current movie
-					Movie movie2 = data.getMovies().get(path[counter-1]); //checks the next movie in line to the start
-					counter = path[counter-1]; //sets the counter to the next movie in line
-					System.out.println(movie1.getTitle()+" ===> "+movie2.getTitle());
-				} //Starts with the end movie, ends with the start movie
+				double similarity = 1;
+				for (int i = path.size() - 1; i > 0; i--) { //Starts with the end movie, ends with the start movie
+					float agreement = graph.getWeight(path.get(i-1), path.get(i));
+					similarity *= agreement;
+					System.out.println(path.get(i).getTitle()+" ===> "+path.get(i-1).getTitle()+" (agreement "+agreement+")");
+				}
+				if (!path.isEmpty()) {
+					System.out.println("Product of agreements: " + similarity);
+				}
 			}
 			else if (input.equals("4")) {
+				System.out.println("Search: [1] titles containing a string, [2] titles starting with a string (most rated first)");
+				String mode = scan.nextLine();
 				System.out.println("Enter string to search movie titles for:");
 				String key = scan.nextLine();
-				System.out.println("The movies with titles containing " + key + " are:");
-				for (Movie movie : data.getMovies().values()) {
-					if (movie.getTitle().contains(key)) {
+				if (mode.equals("2")) {
+					System.out.println("The movies with titles starting with " + key + " are:");
+					for (Movie movie : data.getTitleIndex().startingWith(key)) {
+						System.out.println("\t" + movie.getTitle() + " (" + movie.getMovieId() + ") " + movie.numRatings() + " ratings");
+					}
+				} else {
+					System.out.println("The movies with titles containing " + key + " are:"); //case is ignored
+					for (Movie movie : data.getTitleIndex().containing(key)) {
 						System.out.println("\t" + movie.getTitle() + " (" + movie.getMovieId() + ")");
 					}
 				}
 			}
 			else if (input.equals("5")) {
+				System.out.println("Centrality: [1] PageRank, [2] exact betweenness, [3] betweenness from sampled sources");
+				String mode = scan.nextLine();
+				System.out.println("How many movies should be listed?");
+				int k = scan.nextInt();
+				scan.nextLine();
+				long time = System.currentTimeMillis();
+				Centrality<Movie> centrality;
+				if (mode.equals("2")) {
+					centrality = Centrality.betweenness(graph, pool);
+				} else if (mode.equals("3")) {
+					System.out.println("Enter number of sources to sample (1-" + graph.numVertices() + "):");
+					int samples = scan.nextInt();
+					scan.nextLine();
+					time = System.currentTimeMillis();
+					centrality = Centrality.betweenness(graph, pool, samples, System.nanoTime());
+				} else {
+					centrality = Centrality.pageRank(graph, pool);
+				}
+				System.out.println("The " + k + " most central movies are:" + (centrality.getIterations() > 0
+						? " (" + centrality.getIterations() + " iterations, " : " (") + (System.currentTimeMillis() - time) + "ms)");
+				int rank = 1;
+				for (Movie movie : centrality.top(k)) {
+					System.out.println("\t" + rank++ + ". " + movie.getTitle() + " (" + movie.getMovieId() + ") " + centrality.getScore(movie));
+				}
+			}
+			else if (input.equals("6")) {
+				long time = System.currentTimeMillis();
+				Communities<Movie> communities = Communities.detect(graph, pool, System.nanoTime()); //label propagation
+				Components<Movie> partition = communities.getPartition();
+				System.out.println("Found " + partition.count() + " communities in " + communities.getRounds() + " rounds ("
+						+ (System.currentTimeMillis() - time) + "ms)");
+				System.out.println("\t Modularity = " + communities.getModularity());
+				System.out.println("\t Sizes: " + describeSizes(partition));
+				//the largest communities, each with a few of its members
+				Integer[] order = new Integer[partition.count()];
+				for (int c = 0; c < order.length; c++) {
+					order[c] = c;
+				}
+				Arrays.sort(order, (a, b) -> Integer.compare(partition.size(b), partition.size(a)));
+				for (int i = 0; i < Math.min(COMMUNITIES_SHOWN, order.length) && partition.size(order[i]) > 1; i++) {
+					System.out.println("\t Community of " + partition.size(order[i]) + " movies, including:");
+					int shown = 0;
+					for (Movie movie : graph.getVertices()) {
+						if (partition.componentOf(movie) == order[i] && shown++ < MEMBERS_SHOWN) {
+							System.out.println("\t\t" + movie.getTitle());
+						}
+					}
+				}
+			}
+			else if (input.equals("7")) {
+				int[] core = GraphAlgorithms.coreNumbers(fullGraph); //linear-time peeling by degree
+				int maxCore = 0;
+				for (int c : core) {
+					maxCore = Math.max(maxCore, c);
+				}
+				System.out.println("Keep the movies linked to at least k other kept movies, in either direction (a mutual link counts once).");
+				System.out.println("Enter k (0-" + maxCore + ", 0 analyzes the whole graph again):");
+				int k = scan.nextInt();
+				scan.nextLine();
+				long time = System.currentTimeMillis();
+				GraphIfc<Movie> restricted = k <= 0 ? fullGraph : GraphAlgorithms.kCore(fullGraph, k);
+				if (restricted.numVertices() == 0) {
+					System.out.println("The " + k + "-core is empty, the analysis is unchanged");
+				} else {
+					graph = restricted;
+					oracle = DistanceOracle.build(graph, LANDMARKS, DistanceOracle.Selection.FARTHEST_FIRST, pool);
+					System.out.println("Now analyzing " + graph.numVertices() + " movies and " + graph.numEdges() + " edges ("
+							+ (System.currentTimeMillis() - time) + "ms)");
+				}
+			}
+			else if (input.equals("8")) {
 					System.out.println("Exiting...bye");
 			} else {
-				System.out.println("Not understood. Input (1-5)");
+				System.out.println("Not understood. Input (1-8)");
+			}
+		}
+	}
+	
+	//Lists the component sizes from largest to smallest, as "size" or "size x count"
+	private static String describeSizes(Components<Movie> components) {
+		StringBuilder str = new StringBuilder();
+		for (Map.Entry<Integer, Integer> entry : components.sizeDistribution().entrySet()) {
+			if (str.length() > 0) {
+				str.append(", ");
+			}
+			str.append(entry.getKey());
+			if (entry.getValue() > 1) {
+				str.append(" x ").append(entry.getValue());
 			}
 		}
+		return str.toString();
 	}
 	
 	/*
-	 * Enters the MovieLens interface, taking a ratings file and movie file as input
+	 * Enters the MovieLens interface, taking a ratings file and movie file as input.
+	 * An optional third argument gives the number of threads used to build and analyze
+	 * the graph; with more than one thread the graph is built in parallel. Without it the
+	 * graph is built sequentially and analyzed on all available processors.
 	 */
 	public static void main(String[] args){	
-		if(args.length != 2){
-			System.err.println("Usage: java MovieLensAnalyzer [ratings_file] [movie_title_file]");
+		if(args.length != 2 && args.length != 3){
+			System.err.println("Usage: java MovieLensAnalyzer [ratings_file] [movie_title_file] [threads]");
 			System.exit(-1);
 		}		
+		int threads = 1;
+		if (args.length == 3) {
+			try {
+				threads = Integer.parseInt(args[2]);
+			}
+			catch (NumberFormatException e) {
+				threads = 0;
+			}
+			if (threads < 1) {
+				System.err.println("The number of threads must be a positive integer");
+				System.exit(-1);
+			}
+		}
 		DataLoader dataLoad = new DataLoader();
+		if (args.length == 3) {
+			dataLoad.setThreads(threads);
+		}
 		dataLoad.loadData(args[1], args[0]);
 		System.out.println("======== Welcome to MovieLens Analyzer ========");
 		System.out.println("The files being analyzed are");
@@ -192,13 +359,22 @@ public class MovieLensAnalyzer {
 		System.out.println("Building graph...");
 		long time = System.currentTimeMillis();
 		GraphIfc<Movie> graph = null;
-		if (input.equals("1")) {
+		ForkJoinPool pool = new ForkJoinPool(args.length == 3 ? threads : Runtime.getRuntime().availableProcessors());
+		if (threads > 1) {
+			graph = ParallelGraphBuilder.build(dataLoad, input.equals("1") ? AGREE_33_PERCENT : AGREE_12, pool);
+		}
+		else if (input.equals("1")) {
 			graph = build33PercentAgreeGraph(dataLoad);
 		}
-		if (input.equals("2")) {
+		else if (input.equals("2")) {
 			graph = build12AgreeGraph(dataLoad);
 		}
+		graph = CSRGraph.of(graph); //freeze the graph so every query walks the compact form
 		System.out.println("Built graph in " + (System.currentTimeMillis() - time) + "ms");
-		exploreGraph(graph, dataLoad);
+		time = System.currentTimeMillis();
+		DistanceOracle<Movie> oracle = DistanceOracle.build(graph, LANDMARKS, DistanceOracle.Selection.FARTHEST_FIRST, pool);
+		System.out.println("Built distance oracle in " + (System.currentTimeMillis() - time) + "ms");
+		exploreGraph(graph, dataLoad, pool, oracle);
+		pool.shutdown();
 	}
 }
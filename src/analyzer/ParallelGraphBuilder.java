@@ -0,0 +1,127 @@
+package analyzer;
+import util.*;
+import graph.*;
+import data.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Builds agreement graphs on several threads. The source movies are split into
+ * chunks of consecutive ids that are processed on a ForkJoinPool. Each chunk
+ * counts the agreements of its movies and writes the resulting edges into its own
+ * primitive buffer, and the buffers are merged into a frozen CSRGraph in chunk order
+ * once every chunk is done. The graph therefore has the same edges, in the same
+ * neighbor order, as the one built sequentially with the same rule. Every edge (u, v)
+ * is weighted with its agreement strength agree/count.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class ParallelGraphBuilder {
+
+	/*
+	 * Decides whether movie u is adjacent to movie v
+	 */
+	public interface AdjacencyRule {
+		/**
+		 * @param agree The number of reviewers who gave u and v the same rating
+		 * @param count The number of reviewers who rated u
+		 * @return true if the edge (u, v) belongs in the graph
+		 */
+		public boolean adjacent(int agree, int count);
+	}
+
+	/**
+	 * Builds the graph whose edges are the co-rated pairs accepted by the rule
+	 * @param data The loaded movies and reviewers
+	 * @param rule The adjacency rule
+	 * @param pool The pool that runs the build
+	 * @return The agreement graph, weighted by agreement strength
+	 */
+	public static GraphIfc<Movie> build(DataLoader data, AdjacencyRule rule, ForkJoinPool pool) {
+		AgreementCounter index = AgreementCounter.create(data.getMovies(), data.getRatingMatrix());
+		int m = index.numMovies();
+		Movie[] movies = new Movie[m + 1];
+		int[] numRatings = new int[m + 1];
+		for (Movie movie : data.getMovies().values()) {
+			movies[movie.getMovieId()] = movie;
+			numRatings[movie.getMovieId()] = movie.numRatings();
+		}
+
+		int numChunks = Math.max(1, Math.min(m, pool.getParallelism() * Parallel.CHUNKS_PER_THREAD));
+		IntList[] buffers = new IntList[numChunks];
+		FloatList[] weightBuffers = new FloatList[numChunks];
+		ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[][] {
+			new int[m + 1], new int[m], new int[m]
+		});
+		pool.invoke(new ChunkTask(index, rule, numRatings, buffers, weightBuffers, scratch, 0, numChunks));
+
+		CSRGraph.Builder<Movie> output = new CSRGraph.Builder<Movie>();
+		for (int u = 1; u <= m; u++) {
+			output.addVertex(movies[u]); //dense id u-1
+		}
+		for (int c = 0; c < numChunks; c++) {
+			IntList buffer = buffers[c];
+			for (int i = 0; i < buffer.size(); i += 2) {
+				output.addEdge(buffer.get(i) - 1, buffer.get(i+1) - 1, weightBuffers[c].get(i/2));
+			}
+		}
+		return output.build();
+	}
+
+	/*
+	 * Processes the chunks firstChunk...lastChunk-1, splitting in half until one chunk is left
+	 */
+	private static class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private AgreementCounter index;
+		private AdjacencyRule rule;
+		private int[] numRatings;
+		private IntList[] buffers;
+		private FloatList[] weightBuffers;
+		private ThreadLocal<int[][]> scratch;
+		private int firstChunk;
+		private int lastChunk;
+
+		ChunkTask(AgreementCounter index, AdjacencyRule rule, int[] numRatings, IntList[] buffers,
+				FloatList[] weightBuffers, ThreadLocal<int[][]> scratch, int firstChunk, int lastChunk) {
+			this.index = index;
+			this.rule = rule;
+			this.numRatings = numRatings;
+			this.buffers = buffers;
+			this.weightBuffers = weightBuffers;
+			this.scratch = scratch;
+			this.firstChunk = firstChunk;
+			this.lastChunk = lastChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastChunk - firstChunk > 1) {
+				int mid = (firstChunk + lastChunk) >>> 1;
+				invokeAll(new ChunkTask(index, rule, numRatings, buffers, weightBuffers, scratch, firstChunk, mid),
+						new ChunkTask(index, rule, numRatings, buffers, weightBuffers, scratch, mid, lastChunk));
+				return;
+			}
+			int m = index.numMovies();
+			int from = (int)((long)m * firstChunk / buffers.length) + 1;
+			int to = (int)((long)m * lastChunk / buffers.length) + 1;
+			int[][] arrays = scratch.get();
+			int[] partners = arrays[1];
+			int[] agreements = arrays[2];
+			IntList edges = new IntList();
+			FloatList weights = new FloatList();
+			for (int u = from; u < to; u++) {
+				int n = index.countRow(u, arrays[0], partners, agreements);
+				for (int i = 0; i < n; i++) {
+					if (rule.adjacent(agreements[i], numRatings[u])) {
+						edges.add(u);
+						edges.add(partners[i]);
+						weights.add((float)((double)agreements[i] / numRatings[u]));
+					}
+				}
+			}
+			buffers[firstChunk] = edges;
+			weightBuffers[firstChunk] = weights;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package data;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Counts rating agreements with per-rating reviewer bitsets. Every movie gets one
+ * bitset per half-star rating value over the dense reviewer indices of the rating
+ * matrix (see Movie.buildRatingBits). The agreement of two movies is then the sum over the ten
+ * rating values of the popcount of the AND of their bitsets. Every pair of movies is
+ * compared, but each comparison streams through a few words of memory. This beats the
+ * inverted index when the catalog is dense, that is when most pairs of movies are
+ * co-rated anyway.
+ *
+ * Movie ids must be sequential from 1...M and the movies must be backed by a
+ * RatingMatrix, as produced by DataLoader.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class AgreementBitsets implements AgreementCounter {
+	// Upper bound on the memory spent on bitsets
+	private static final long MAX_BITSET_BYTES = 256L << 20;
+	// Bitset words that can be ANDed and counted in the time of one scattered counter
+	// increment; measured on ml-latest-small, where both counters take about as long
+	private static final long WORDS_PER_INCREMENT = 32;
+
+	private Movie[] movies;
+
+	/**
+	 * Builds the rating bitsets of every movie
+	 * @param movies The movies, keyed by their ids 1...M, backed by a RatingMatrix
+	 */
+	public AgreementBitsets(Map<Integer, Movie> movies){
+		this.movies = new Movie[movies.size() + 1];
+		for (Movie movie : movies.values()) {
+			movie.buildRatingBits();
+			this.movies[movie.getMovieId()] = movie;
+		}
+	}
+
+	/**
+	 * Estimates whether the bitsets are cheaper than the inverted index for the given
+	 * ratings. They are used only if the bitsets fit in MAX_BITSET_BYTES and the full
+	 * pair loop does less work than the index would.
+	 * @param ratings The ratings to count agreements over
+	 * @return true if AgreementBitsets should be used
+	 */
+	public static boolean isWorthwhile(RatingMatrix ratings){
+		long words = (ratings.numReviewers() + 63) / 64;
+		long sparseWork = 0;
+		int[] sizes = new int[11];
+		for (int r = 0; r < ratings.numReviewers(); r++) {
+			Arrays.fill(sizes, 0);
+			for (int k = ratings.reviewerStart(r); k < ratings.reviewerEnd(r); k++) {
+				sizes[ratings.reviewerRating(k)]++;
+			}
+			for (int size : sizes) {
+				sparseWork += (long)size * size;
+			}
+		}
+		long numBitsets = 0;
+		boolean[] used = new boolean[11];
+		for (int u = 1; u <= ratings.numMovies(); u++) {
+			Arrays.fill(used, false);
+			for (int k = ratings.movieStart(u); k < ratings.movieEnd(u); k++) {
+				used[ratings.movieRating(k)] = true;
+			}
+			for (boolean b : used) {
+				numBitsets += b ? 1 : 0;
+			}
+		}
+		if (numBitsets * words * 8 > MAX_BITSET_BYTES) {
+			return false;
+		}
+		long denseWork = ratings.numMovies() * numBitsets * words;
+		return denseWork < WORDS_PER_INCREMENT * sparseWork;
+	}
+
+	@Override
+	public int numMovies(){
+		return movies.length - 1;
+	}
+
+	@Override
+	public int countRow(int movieId, int[] counts, int[] partners, int[] agreements){
+		Movie movie = movies[movieId];
+		int n = 0;
+		for (int v = 1; v < movies.length; v++) {
+			if (v == movieId) {
+				continue;
+			}
+			int agree = movie.countAgreements(movies[v]);
+			if (agree > 0) {
+				partners[n] = v;
+				agreements[n] = agree;
+				n++;
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,74 @@
+package data;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Counts, for pairs of movies, how many reviewers gave both movies the same rating.
+ * Counting is done one source movie (one row) at a time so that rows can be shared
+ * out between threads.
+ *
+ * Movie ids must be sequential from 1...M, as produced by DataLoader.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public interface AgreementCounter {
+
+	/**
+	 * Returns the number of movies covered by the counter
+	 * @return The number of movies M
+	 */
+	public int numMovies();
+
+	/**
+	 * Counts, for a single movie, how many reviewers gave each other movie the same rating.
+	 * Only movies with at least one agreeing reviewer are reported.
+	 *
+	 * @param movieId The movie whose agreements are counted
+	 * @param counts Scratch array of length M+1 that is all zero on entry; it is all zero again on return
+	 * @param partners Receives the ids of the agreeing movies in increasing order; length at least M
+	 * @param agreements Receives the number of agreeing reviewers for each partner; length at least M
+	 * @return The number of partners written
+	 */
+	public int countRow(int movieId, int[] counts, int[] partners, int[] agreements);
+
+	/**
+	 * Counts the agreements of every movie
+	 * @return The sparse table of agreement counts for all co-rated pairs
+	 */
+	public default CoRatingCounts countAll(){
+		int numMovies = numMovies();
+		int[] counts = new int[numMovies + 1];
+		int[] rowPartners = new int[numMovies];
+		int[] rowAgreements = new int[numMovies];
+		int[] offsets = new int[numMovies + 1];
+		int[] partners = new int[Math.max(16, numMovies)];
+		int[] agreements = new int[partners.length];
+		for (int u = 1; u <= numMovies; u++) {
+			int n = countRow(u, counts, rowPartners, rowAgreements);
+			int start = offsets[u-1];
+			if (start + n > partners.length) {
+				int size = Math.max(start + n, 2*partners.length);
+				partners = Arrays.copyOf(partners, size);
+				agreements = Arrays.copyOf(agreements, size);
+			}
+			System.arraycopy(rowPartners, 0, partners, start, n);
+			System.arraycopy(rowAgreements, 0, agreements, start, n);
+			offsets[u] = start + n;
+		}
+		return new CoRatingCounts(offsets, partners, agreements);
+	}
+
+	/**
+	 * Returns the cheaper counter for the given data: per-rating bitsets when the
+	 * catalog is dense enough for a full pair loop to win, the inverted index otherwise
+	 * @param movies The movies, keyed by their ids 1...M, backed by the rating matrix
+	 * @param ratings The rating matrix
+	 * @return An agreement counter over the data
+	 */
+	public static AgreementCounter create(Map<Integer, Movie> movies, RatingMatrix ratings){
+		if (AgreementBitsets.isWorthwhile(ratings)) {
+			return new AgreementBitsets(movies);
+		}
+		return new AgreementIndex(ratings);
+	}
+}
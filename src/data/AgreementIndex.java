@@ -0,0 +1,103 @@
+package data;
+import java.util.Arrays;
+
+/**
+ * An inverted index from reviewers to the movies they rated, used to count how many
+ * reviewers gave two movies the same rating. Each reviewer's movies are split into
+ * groups of equal rating, and two movies agree once for every group they share.
+ * Counting the agreements of a movie therefore only visits the groups that movie
+ * belongs to, so the work grows with the number of co-rated pairs rather than with
+ * the square of the number of movies.
+ *
+ * Movie ids must be sequential from 1...M, as produced by DataLoader.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class AgreementIndex implements AgreementCounter {
+	private int numMovies;
+
+	// The movies of group g are groupMovies[groupOffsets[g] ... groupOffsets[g+1]-1]
+	private int[] groupOffsets;
+	private int[] groupMovies;
+
+	// The groups containing movie u are rowGroups[rowOffsets[u-1] ... rowOffsets[u]-1]
+	private int[] rowOffsets;
+	private int[] rowGroups;
+
+	/**
+	 * Builds the index from the by-reviewer orientation of a rating matrix
+	 * @param ratings The ratings to index
+	 */
+	public AgreementIndex(RatingMatrix ratings){
+		numMovies = ratings.numMovies();
+		int numRatings = ratings.numRatings();
+		groupMovies = new int[numRatings];
+		groupOffsets = new int[numRatings + 1];
+		rowOffsets = new int[numMovies + 1];
+
+		// Counting sort of each reviewer's movies into one group per rating value; the
+		// movies are sorted by id in the matrix and stay sorted within each group
+		int numGroups = 0;
+		int[] next = new int[11];
+		for (int r = 0; r < ratings.numReviewers(); r++) {
+			int start = ratings.reviewerStart(r);
+			int end = ratings.reviewerEnd(r);
+			Arrays.fill(next, 0);
+			for (int k = start; k < end; k++) {
+				next[ratings.reviewerRating(k)]++;
+				rowOffsets[ratings.reviewerMovie(k)]++;
+			}
+			int pos = start;
+			for (int h = 1; h <= 10; h++) {
+				int size = next[h];
+				if (size > 0) {
+					groupOffsets[numGroups++] = pos;
+				}
+				next[h] = pos;
+				pos += size;
+			}
+			for (int k = start; k < end; k++) {
+				groupMovies[next[ratings.reviewerRating(k)]++] = ratings.reviewerMovie(k);
+			}
+		}
+		groupOffsets[numGroups] = numRatings;
+		groupOffsets = Arrays.copyOf(groupOffsets, numGroups + 1);
+
+		int[] rowNext = new int[numMovies + 1];
+		for (int u = 1; u <= numMovies; u++) {
+			rowOffsets[u] += rowOffsets[u-1];
+			rowNext[u] = rowOffsets[u-1];
+		}
+		rowGroups = new int[numRatings];
+		for (int g = 0; g < numGroups; g++) {
+			for (int k = groupOffsets[g]; k < groupOffsets[g+1]; k++) {
+				rowGroups[rowNext[groupMovies[k]]++] = g;
+			}
+		}
+	}
+
+	@Override
+	public int numMovies(){
+		return numMovies;
+	}
+
+	@Override
+	public int countRow(int movieId, int[] counts, int[] partners, int[] agreements){
+		int n = 0;
+		for (int k = rowOffsets[movieId-1]; k < rowOffsets[movieId]; k++) {
+			int g = rowGroups[k];
+			for (int j = groupOffsets[g]; j < groupOffsets[g+1]; j++) {
+				int other = groupMovies[j];
+				if (other != movieId && counts[other]++ == 0) {
+					partners[n++] = other;
+				}
+			}
+		}
+		Arrays.sort(partners, 0, n);
+		for (int i = 0; i < n; i++) {
+			agreements[i] = counts[partners[i]];
+			counts[partners[i]] = 0;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,98 @@
+package data;
+import java.util.Arrays;
+
+/**
+ * A sparse table holding, for every movie u, the movies v that at least one reviewer
+ * gave the same rating as u, together with the number of such reviewers. Only
+ * co-rated pairs are stored. The partners of a movie are kept in increasing id order
+ * and are read by position:
+ *
+ * <pre>
+ * for (int k = counts.start(u); k &lt; counts.end(u); k++) {
+ *     int v = counts.partner(k);
+ *     int agree = counts.agreement(k);
+ * }
+ * </pre>
+ *
+ * Tables are produced by AgreementCounter.countAll().
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class CoRatingCounts {
+	// The partners of movie u are partners[offsets[u-1] ... offsets[u]-1]
+	private int[] offsets;
+	private int[] partners;
+	private int[] agreements;
+
+	CoRatingCounts(int[] offsets, int[] partners, int[] agreements){
+		this.offsets = offsets;
+		this.partners = partners;
+		this.agreements = agreements;
+	}
+
+	/**
+	 * Returns the number of movies in the table
+	 * @return The number of movies M
+	 */
+	public int numMovies(){
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the number of stored (ordered) movie pairs
+	 * @return The number of pairs with at least one agreeing reviewer
+	 */
+	public int numPairs(){
+		return offsets[offsets.length - 1];
+	}
+
+	/**
+	 * Returns the position of the first partner of a movie
+	 * @param movieId A movie id in 1...M
+	 * @return The position of the movie's first partner
+	 */
+	public int start(int movieId){
+		return offsets[movieId-1];
+	}
+
+	/**
+	 * Returns the position just past the last partner of a movie
+	 * @param movieId A movie id in 1...M
+	 * @return One past the position of the movie's last partner
+	 */
+	public int end(int movieId){
+		return offsets[movieId];
+	}
+
+	/**
+	 * Returns the partner movie stored at a position
+	 * @param k A position between start(u) and end(u)
+	 * @return The id of the partner movie
+	 */
+	public int partner(int k){
+		return partners[k];
+	}
+
+	/**
+	 * Returns the agreement count stored at a position
+	 * @param k A position between start(u) and end(u)
+	 * @return The number of reviewers who gave both movies the same rating
+	 */
+	public int agreement(int k){
+		return agreements[k];
+	}
+
+	/**
+	 * Returns the number of reviewers who gave two movies the same rating
+	 * @param u A movie id in 1...M
+	 * @param v A movie id in 1...M
+	 * @return The number of agreeing reviewers, 0 if there are none
+	 */
+	public int getAgreement(int u, int v){
+		int k = Arrays.binarySearch(partners, offsets[u-1], offsets[u], v);
+		if (k < 0) {
+			return 0;
+		}
+		return agreements[k];
+	}
+}
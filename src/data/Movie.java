@@ -6,7 +6,8 @@ import java.util.Objects;
 import java.util.Set;
 
 /**
- * This class represents a single movie.
+ * This class represents a single movie. A movie loaded by DataLoader is a view over
+ * the shared RatingMatrix; a movie built by hand keeps its own map of ratings.
  * @author alchambers
  */
 public class Movie {
@@ -14,7 +15,10 @@ public class Movie {
 	private int movieId;
 	private String title;	
 	private Map<Integer, Double> ratings;
+	private RatingMatrix matrix;
 	private Set<String> genres;	
+	// ratingBits[h-1] has bit r set if the reviewer with matrix index r gave the movie h half-stars
+	private long[][] ratingBits;
 	
 	/**
 	 * Constructs a new movie with the given information
@@ -34,14 +38,29 @@ public class Movie {
 	 * Records a rating for the movie
 	 * @param userId The id of the user rating the movie
 	 * @param rating The rating given by the uesr
+	 * @throws UnsupportedOperationException if the movie is a view over a RatingMatrix
 	 */
 	public void addRating(int userId, double rating){
 		if(userId < 0 || rating < 0){
 			throw new AssertionError("Inputs must be positive.");
 		}
+		if(matrix != null){
+			throw new UnsupportedOperationException("Ratings of a movie backed by a RatingMatrix are read-only");
+		}
 		ratings.put(userId, rating);
 	}
 	
+	/**
+	 * Turns the movie into a view over a rating matrix. Ratings recorded with
+	 * addRating are discarded.
+	 * @param matrix The matrix holding this movie's ratings under its movie id
+	 */
+	public void useRatingMatrix(RatingMatrix matrix){
+		this.matrix = matrix;
+		ratings = null;
+		ratingBits = null;
+	}
+	
 	public void addGenre(String genre) {
 		genres.add(genre);
 	}
@@ -56,7 +75,7 @@ public class Movie {
 	 * @return true if the user rated the movie, false otherwise
 	 */
 	public boolean rated(int userId){
-		return ratings.containsKey(userId);
+		return getRating(userId) != -1;
 	}
 		
 	/**
@@ -65,6 +84,9 @@ public class Movie {
 	 * @return The user's rating or -1 if the user has not rated the movie
 	 */
 	public double getRating(int userId){
+		if(matrix != null){
+			return matrix.getRating(movieId, userId);
+		}
 		Double rating = ratings.get(userId);
 		if(rating == null){
 			return -1;
@@ -77,17 +99,95 @@ public class Movie {
 	 * @return The number of user's who have rated the movie
 	 */
 	public int numRatings(){
+		if(matrix != null){
+			return matrix.movieEnd(movieId) - matrix.movieStart(movieId);
+		}
 		return ratings.size();
 	}
 	
 	/**
-	 * Returns a map view of the ratings
+	 * Returns a map view of the ratings. For a movie backed by a RatingMatrix the view is read-only.
 	 * @return A map from the rating to the frequency of that rating 
 	 */
 	public Map<Integer, Double> getRatings(){
+		if(matrix != null){
+			return matrix.movieRatingsView(movieId);
+		}
 		return ratings;
 	}
 	
+	/**
+	 * Converts a rating to a number of half-stars
+	 * @param rating A rating between 0.5 and 5.0
+	 * @return The number of half-stars between 1 and 10, or -1 if the rating is not a multiple of 0.5 in that range
+	 */
+	public static int halfStars(double rating){
+		int halfStars = (int)(rating*2);
+		if (halfStars < 1 || halfStars > 10 || halfStars != rating*2) {
+			return -1;
+		}
+		return halfStars;
+	}
+	
+	/**
+	 * Builds one bitset of reviewers for each half-star rating value, indexed by the
+	 * dense reviewer indices of the rating matrix
+	 * @throws IllegalStateException if the movie is not backed by a RatingMatrix
+	 */
+	public void buildRatingBits(){
+		if(matrix == null){
+			throw new IllegalStateException("Rating bitsets need a RatingMatrix");
+		}
+		int words = (matrix.numReviewers() + 63) / 64;
+		long[][] bits = new long[10][];
+		for (int k = matrix.movieStart(movieId); k < matrix.movieEnd(movieId); k++) {
+			int h = matrix.movieRating(k);
+			if (bits[h-1] == null) {
+				bits[h-1] = new long[words];
+			}
+			int r = matrix.movieReviewer(k);
+			bits[h-1][r >>> 6] |= 1L << r;
+		}
+		ratingBits = bits;
+	}
+	
+	/**
+	 * Returns the reviewers who gave the movie a rating, as a bitset over the matrix's reviewer indices
+	 * @param halfStars The rating in half-stars, between 1 and 10
+	 * @return The bitset, or null if nobody gave that rating or the bitsets were never built
+	 */
+	public long[] getRatingBits(int halfStars){
+		if (ratingBits == null) {
+			return null;
+		}
+		return ratingBits[halfStars-1];
+	}
+	
+	/**
+	 * Counts the reviewers who gave this movie and another movie the same rating, using
+	 * the rating bitsets of both movies
+	 * @param other Another movie whose bitsets were built with the same dense indices
+	 * @return The number of agreeing reviewers
+	 * @throws IllegalStateException if the bitsets of either movie were never built
+	 */
+	public int countAgreements(Movie other){
+		if (ratingBits == null || other.ratingBits == null) {
+			throw new IllegalStateException("Rating bitsets have not been built");
+		}
+		int agree = 0;
+		for (int h = 0; h < 10; h++) {
+			long[] a = ratingBits[h];
+			long[] b = other.ratingBits[h];
+			if (a == null || b == null) {
+				continue;
+			}
+			for (int w = 0; w < a.length; w++) {
+				agree += Long.bitCount(a[w] & b[w]);
+			}
+		}
+		return agree;
+	}
+	
 	/**
 	 * Set the year of the movie
 	 * @param year The year the movie was released
@@ -135,7 +235,7 @@ public class Movie {
 	 */
 	public String toString(){
 		String str = "("+ movieId + ") " + title + "\n";
-		str += "Num Ratings: " + ratings.size() + "\n";
+		str += "Num Ratings: " + numRatings() + "\n";
 		str += "Genres: ";
 		for(String genre : genres) {
 			str += genre + " ";
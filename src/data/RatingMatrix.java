@@ -0,0 +1,496 @@
+package data;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable sparse matrix holding every rating exactly once per orientation.
+ * Ratings are stored as half-stars (1...10) in bytes and reviewers are renumbered to
+ * dense indices 0...R-1 in increasing order of their ids.
+ *
+ * The matrix is kept in two orientations:
+ * <ul>
+ * <li> By movie (CSR): the reviewers of movie u, sorted by index, are at positions
+ *      movieStart(u) ... movieEnd(u)-1 </li>
+ * <li> By reviewer (CSC): the movies of reviewer r, sorted by id, are at positions
+ *      reviewerStart(r) ... reviewerEnd(r)-1 </li>
+ * </ul>
+ * Movie and Reviewer objects created by DataLoader are views over a shared matrix.
+ *
+ * Movie ids must be sequential from 1...M, as produced by DataLoader.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class RatingMatrix {
+	private int numMovies;
+	private int[] reviewerIds;
+
+	// By movie: reviewers of movie u are at movieOffsets[u-1] ... movieOffsets[u]-1
+	private int[] movieOffsets;
+	private int[] movieReviewers;
+	private byte[] movieRatings;
+
+	// By reviewer: movies of reviewer r are at reviewerOffsets[r] ... reviewerOffsets[r+1]-1
+	private int[] reviewerOffsets;
+	private int[] reviewerMovies;
+	private byte[] reviewerRatings;
+
+	private RatingMatrix(){
+	}
+
+	/**
+	 * Builds the matrix from a list of (movie, reviewer, rating) triples. If a reviewer
+	 * rated the same movie more than once, the last rating is kept.
+	 * @param numMovies The number of movies M
+	 * @param movieIds The movie of each rating, in 1...M
+	 * @param reviewerIds The reviewer of each rating
+	 * @param halfStars Each rating in half-stars, between 1 and 10
+	 * @param numRatings The number of triples to read from the arrays
+	 * @throws IllegalArgumentException if a movie id or rating is out of range
+	 */
+	public RatingMatrix(int numMovies, int[] movieIds, int[] reviewerIds, byte[] halfStars, int numRatings){
+		this.numMovies = numMovies;
+		int[] ids = Arrays.copyOf(reviewerIds, numRatings);
+		Arrays.sort(ids);
+		int numReviewers = 0;
+		for (int i = 0; i < numRatings; i++) {
+			if (i == 0 || ids[i] != ids[i-1]) {
+				ids[numReviewers++] = ids[i];
+			}
+		}
+		this.reviewerIds = Arrays.copyOf(ids, numReviewers);
+
+		// Stable counting sort by reviewer, then by movie, gives each movie's reviewers in
+		// increasing order with repeated ratings next to each other in input order
+		int[] index = new int[numRatings];
+		int[] byReviewer = new int[numRatings];
+		int[] counts = new int[Math.max(numReviewers, numMovies) + 1];
+		for (int i = 0; i < numRatings; i++) {
+			if (movieIds[i] < 1 || movieIds[i] > numMovies) {
+				throw new IllegalArgumentException("Movie " + movieIds[i] + " is not in 1..." + numMovies);
+			}
+			if (halfStars[i] < 1 || halfStars[i] > 10) {
+				throw new IllegalArgumentException("Rating of " + halfStars[i] + " half-stars is out of range");
+			}
+			index[i] = Arrays.binarySearch(this.reviewerIds, reviewerIds[i]);
+			counts[index[i] + 1]++;
+		}
+		for (int r = 0; r < numReviewers; r++) {
+			counts[r+1] += counts[r];
+		}
+		for (int i = 0; i < numRatings; i++) {
+			byReviewer[counts[index[i]]++] = i;
+		}
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < numRatings; i++) {
+			counts[movieIds[i]]++;
+		}
+		for (int u = 1; u <= numMovies; u++) {
+			counts[u] += counts[u-1];
+		}
+		int[] byMovie = new int[numRatings];
+		for (int k = numRatings - 1; k >= 0; k--) {
+			int i = byReviewer[k];
+			byMovie[--counts[movieIds[i]]] = i;
+		}
+
+		movieOffsets = new int[numMovies + 1];
+		movieReviewers = new int[numRatings];
+		movieRatings = new byte[numRatings];
+		int n = 0;
+		for (int k = 0; k < numRatings; k++) {
+			int i = byMovie[k];
+			boolean repeated = k + 1 < numRatings && movieIds[byMovie[k+1]] == movieIds[i]
+					&& index[byMovie[k+1]] == index[i];
+			if (!repeated) {
+				movieReviewers[n] = index[i];
+				movieRatings[n] = halfStars[i];
+				movieOffsets[movieIds[i]] = ++n;
+			}
+		}
+		for (int u = 1; u <= numMovies; u++) {
+			movieOffsets[u] = Math.max(movieOffsets[u], movieOffsets[u-1]);
+		}
+		movieReviewers = Arrays.copyOf(movieReviewers, n);
+		movieRatings = Arrays.copyOf(movieRatings, n);
+
+		// Walking the movies in order fills each reviewer's movies in increasing order
+		reviewerOffsets = new int[numReviewers + 1];
+		for (int k = 0; k < n; k++) {
+			reviewerOffsets[movieReviewers[k] + 1]++;
+		}
+		for (int r = 0; r < numReviewers; r++) {
+			reviewerOffsets[r+1] += reviewerOffsets[r];
+		}
+		int[] next = Arrays.copyOf(reviewerOffsets, numReviewers);
+		reviewerMovies = new int[n];
+		reviewerRatings = new byte[n];
+		for (int u = 1; u <= numMovies; u++) {
+			for (int k = movieOffsets[u-1]; k < movieOffsets[u]; k++) {
+				int pos = next[movieReviewers[k]]++;
+				reviewerMovies[pos] = u;
+				reviewerRatings[pos] = movieRatings[k];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of movies
+	 * @return The number of movies M
+	 */
+	public int numMovies(){
+		return numMovies;
+	}
+
+	/**
+	 * Returns the number of reviewers with at least one rating
+	 * @return The number of reviewers R
+	 */
+	public int numReviewers(){
+		return reviewerIds.length;
+	}
+
+	/**
+	 * Returns the number of stored ratings
+	 * @return The number of ratings
+	 */
+	public int numRatings(){
+		return movieReviewers.length;
+	}
+
+	/**
+	 * Returns the dense index of a reviewer
+	 * @param reviewerId The id of the reviewer
+	 * @return The index in 0...R-1, or -1 if the reviewer has no ratings
+	 */
+	public int reviewerIndex(int reviewerId){
+		int r = Arrays.binarySearch(reviewerIds, reviewerId);
+		return r < 0 ? -1 : r;
+	}
+
+	/**
+	 * Returns the id of the reviewer with the given dense index
+	 * @param index A reviewer index in 0...R-1
+	 * @return The reviewer id
+	 */
+	public int reviewerId(int index){
+		return reviewerIds[index];
+	}
+
+	/**
+	 * Returns the position of the first rating of a movie
+	 * @param movieId A movie id in 1...M
+	 * @return The position of the movie's first rating
+	 */
+	public int movieStart(int movieId){
+		return movieOffsets[movieId-1];
+	}
+
+	/**
+	 * Returns the position just past the last rating of a movie
+	 * @param movieId A movie id in 1...M
+	 * @return One past the position of the movie's last rating
+	 */
+	public int movieEnd(int movieId){
+		return movieOffsets[movieId];
+	}
+
+	/**
+	 * Returns the reviewer of a rating in the by-movie orientation
+	 * @param k A position between movieStart(u) and movieEnd(u)
+	 * @return The dense index of the reviewer
+	 */
+	public int movieReviewer(int k){
+		return movieReviewers[k];
+	}
+
+	/**
+	 * Returns a rating in the by-movie orientation
+	 * @param k A position between movieStart(u) and movieEnd(u)
+	 * @return The rating in half-stars
+	 */
+	public int movieRating(int k){
+		return movieRatings[k];
+	}
+
+	/**
+	 * Returns the position of the first rating of a reviewer
+	 * @param index A reviewer index in 0...R-1
+	 * @return The position of the reviewer's first rating
+	 */
+	public int reviewerStart(int index){
+		return reviewerOffsets[index];
+	}
+
+	/**
+	 * Returns the position just past the last rating of a reviewer
+	 * @param index A reviewer index in 0...R-1
+	 * @return One past the position of the reviewer's last rating
+	 */
+	public int reviewerEnd(int index){
+		return reviewerOffsets[index+1];
+	}
+
+	/**
+	 * Returns the movie of a rating in the by-reviewer orientation
+	 * @param k A position between reviewerStart(r) and reviewerEnd(r)
+	 * @return The movie id
+	 */
+	public int reviewerMovie(int k){
+		return reviewerMovies[k];
+	}
+
+	/**
+	 * Returns a rating in the by-reviewer orientation
+	 * @param k A position between reviewerStart(r) and reviewerEnd(r)
+	 * @return The rating in half-stars
+	 */
+	public int reviewerRating(int k){
+		return reviewerRatings[k];
+	}
+
+	/**
+	 * Returns a reviewer's rating of a movie
+	 * @param movieId A movie id in 1...M
+	 * @param reviewerId The id of the reviewer
+	 * @return The rating, or -1 if the reviewer has not rated the movie
+	 */
+	public double getRating(int movieId, int reviewerId){
+		int r = reviewerIndex(reviewerId);
+		if (r < 0) {
+			return -1;
+		}
+		int k = Arrays.binarySearch(movieReviewers, movieOffsets[movieId-1], movieOffsets[movieId], r);
+		if (k < 0) {
+			return -1;
+		}
+		return movieRatings[k] / 2.0;
+	}
+
+	/**
+	 * Returns a reviewer's rating of a movie
+	 * @param index A reviewer index in 0...R-1
+	 * @param movieId The id of the movie
+	 * @return The rating, or -1 if the reviewer has not rated the movie
+	 */
+	public double getMovieRating(int index, int movieId){
+		int k = Arrays.binarySearch(reviewerMovies, reviewerOffsets[index], reviewerOffsets[index+1], movieId);
+		if (k < 0) {
+			return -1;
+		}
+		return reviewerRatings[k] / 2.0;
+	}
+
+	/**
+	 * Writes the matrix to a channel as little-endian primitive columns: the number of
+	 * movies, reviewers and ratings, then the reviewer ids, the by-movie offsets,
+	 * reviewers and ratings, and the by-reviewer offsets, movies and ratings
+	 * @param channel The channel to write to
+	 * @throws IOException if writing fails
+	 */
+	public void write(WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(numMovies).putInt(reviewerIds.length).putInt(movieReviewers.length);
+		for (int[] column : new int[][] {reviewerIds, movieOffsets, movieReviewers}) {
+			writeInts(channel, buffer, column);
+		}
+		writeBytes(channel, buffer, movieRatings);
+		writeInts(channel, buffer, reviewerOffsets);
+		writeInts(channel, buffer, reviewerMovies);
+		writeBytes(channel, buffer, reviewerRatings);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Reads a matrix written by write. The buffer's position is moved past the matrix.
+	 * @param buffer A buffer positioned at the start of the matrix
+	 * @return The matrix
+	 */
+	public static RatingMatrix read(ByteBuffer buffer){
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		RatingMatrix matrix = new RatingMatrix();
+		matrix.numMovies = buffer.getInt();
+		int numReviewers = buffer.getInt();
+		int numRatings = buffer.getInt();
+		matrix.reviewerIds = readInts(buffer, numReviewers);
+		matrix.movieOffsets = readInts(buffer, matrix.numMovies + 1);
+		matrix.movieReviewers = readInts(buffer, numRatings);
+		matrix.movieRatings = readBytes(buffer, numRatings);
+		matrix.reviewerOffsets = readInts(buffer, numReviewers + 1);
+		matrix.reviewerMovies = readInts(buffer, numRatings);
+		matrix.reviewerRatings = readBytes(buffer, numRatings);
+		return matrix;
+	}
+
+	/*
+	 * Copies a column through the buffer, writing the buffer out whenever it fills up
+	 */
+	private static void writeInts(WritableByteChannel channel, ByteBuffer buffer, int[] column) throws IOException {
+		int pos = 0;
+		while (pos < column.length) {
+			if (buffer.remaining() < 4) {
+				drain(channel, buffer);
+			}
+			int n = Math.min(column.length - pos, buffer.remaining() / 4);
+			buffer.asIntBuffer().put(column, pos, n);
+			buffer.position(buffer.position() + 4*n);
+			pos += n;
+		}
+	}
+
+	private static void writeBytes(WritableByteChannel channel, ByteBuffer buffer, byte[] column) throws IOException {
+		int pos = 0;
+		while (pos < column.length) {
+			if (!buffer.hasRemaining()) {
+				drain(channel, buffer);
+			}
+			int n = Math.min(column.length - pos, buffer.remaining());
+			buffer.put(column, pos, n);
+			pos += n;
+		}
+	}
+
+	private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int length){
+		int[] column = new int[length];
+		buffer.asIntBuffer().get(column);
+		buffer.position(buffer.position() + 4*length);
+		return column;
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer, int length){
+		byte[] column = new byte[length];
+		buffer.get(column);
+		return column;
+	}
+
+	/**
+	 * Returns a read-only map view of a movie's ratings
+	 * @param movieId A movie id in 1...M
+	 * @return A map from reviewer id to rating
+	 */
+	public Map<Integer, Double> movieRatingsView(int movieId){
+		return new RowView(movieOffsets[movieId-1], movieOffsets[movieId]) {
+			@Override
+			protected int key(int k) {
+				return reviewerIds[movieReviewers[k]];
+			}
+			@Override
+			protected double rating(int k) {
+				return movieRatings[k] / 2.0;
+			}
+			@Override
+			public Double get(Object key) {
+				if (!(key instanceof Integer)) {
+					return null;
+				}
+				double rating = getRating(movieId, (Integer) key);
+				return rating < 0 ? null : rating;
+			}
+		};
+	}
+
+	/**
+	 * Returns a read-only map view of a reviewer's ratings
+	 * @param index A reviewer index in 0...R-1
+	 * @return A map from movie id to rating
+	 */
+	public Map<Integer, Double> reviewerRatingsView(int index){
+		return new RowView(reviewerOffsets[index], reviewerOffsets[index+1]) {
+			@Override
+			protected int key(int k) {
+				return reviewerMovies[k];
+			}
+			@Override
+			protected double rating(int k) {
+				return reviewerRatings[k] / 2.0;
+			}
+			@Override
+			public Double get(Object key) {
+				if (!(key instanceof Integer)) {
+					return null;
+				}
+				double rating = getMovieRating(index, (Integer) key);
+				return rating < 0 ? null : rating;
+			}
+		};
+	}
+
+	/*
+	 * A read-only map over the positions start...end-1 of one orientation
+	 */
+	private abstract static class RowView extends AbstractMap<Integer, Double> {
+		private int start;
+		private int end;
+
+		RowView(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		protected abstract int key(int k);
+
+		protected abstract double rating(int k);
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+
+		@Override
+		public Set<Map.Entry<Integer, Double>> entrySet() {
+			return new AbstractSet<Map.Entry<Integer, Double>>() {
+				@Override
+				public int size() {
+					return end - start;
+				}
+
+				@Override
+				public Iterator<Map.Entry<Integer, Double>> iterator() {
+					return new Iterator<Map.Entry<Integer, Double>>() {
+						private int k = start;
+
+						@Override
+						public boolean hasNext() {
+							return k < end;
+						}
+
+						@Override
+						public Map.Entry<Integer, Double> next() {
+							if (k >= end) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<Integer, Double> entry =
+									new AbstractMap.SimpleImmutableEntry<>(key(k), rating(k));
+							k++;
+							return entry;
+						}
+					};
+				}
+			};
+		}
+	}
+}
@@ -7,7 +7,8 @@ import java.util.ArrayList;
 /**
  * This class contains information for a single Netflix movie reviewer
  * including the reviewer id and a list of the movies (and ratings)
- * reviewed
+ * reviewed. A reviewer loaded by DataLoader is a view over the shared
+ * RatingMatrix; a reviewer built by hand keeps its own map of ratings.
  * 
  * @author alchambers
  *
@@ -19,6 +20,9 @@ public class Reviewer {
 	// given by the user
 	private Map<Integer, Double> listByMovieId;
 
+	// The matrix holding the reviewer's ratings under index, or null
+	private RatingMatrix matrix;
+	private int index;
 
 	/**
 	 * Create a new reviewer with given id 
@@ -28,10 +32,24 @@ public class Reviewer {
 		listByMovieId = new HashMap<>();		
 	}	
 
+	/**
+	 * Create a reviewer that is a read-only view over a rating matrix
+	 * @param matrix The matrix holding the reviewer's ratings
+	 * @param index The reviewer's dense index in the matrix
+	 */
+	public Reviewer(RatingMatrix matrix, int index){
+		reviewerId = matrix.reviewerId(index);
+		this.matrix = matrix;
+		this.index = index;
+	}
+
 	/**
 	 * Add a movie to the reviewer's list of rated movies
 	 */
 	public void addMovie(int movieId, double rating){
+		if(matrix != null){
+			throw new UnsupportedOperationException("Ratings of a reviewer backed by a RatingMatrix are read-only");
+		}
 		listByMovieId.put(movieId, rating);
 	}
 
@@ -41,6 +59,9 @@ public class Reviewer {
 	 * of the rating
 	 */
 	public Map<Integer, Double> getRatings(){
+		if(matrix != null){
+			return matrix.reviewerRatingsView(index);
+		}
 		return  listByMovieId;
 	}
 
@@ -49,6 +70,9 @@ public class Reviewer {
 	 * if the reviewer never rated the movie
 	 */
 	public double getMovieRating(int movieId){
+		if(matrix != null){
+			return matrix.getMovieRating(index, movieId);
+		}
 		if(!listByMovieId.containsKey(movieId)){
 			return -1;
 		}
@@ -67,13 +91,16 @@ public class Reviewer {
 	 * otherwise
 	 */
 	public boolean ratedMovie(int movieId){		
-		return listByMovieId.containsKey(movieId);
+		return getMovieRating(movieId) != -1;
 	}
 
 	/**
 	 * Returns the number of movies rated by the reviewer
 	 */
 	public int numRated(){
+		if(matrix != null){
+			return matrix.reviewerEnd(index) - matrix.reviewerStart(index);
+		}
 		return listByMovieId.size();
 	}
 	
@@ -111,7 +138,7 @@ public class Reviewer {
 	 */
 	public String toString(){
 		String str = "User: " + reviewerId + "\n";					
-		for(Map.Entry<Integer, Double> entry : listByMovieId.entrySet()){
+		for(Map.Entry<Integer, Double> entry : getRatings().entrySet()){
 			int movieId = entry.getKey();
 			double rating = entry.getValue();
 			str += "\tmovie=" + movieId + " rating=" + rating + "\n";
@@ -0,0 +1,523 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.Parallel;
+
+/**
+ * Approximate shortest path statistics of an unweighted graph, for graphs too large for
+ * PathStatistics to search from every vertex. Unreachable pairs are left out, as there.
+ * <ul>
+ * <li> The diameter is bracketed by a lower and an upper bound. Double sweeps give the
+ *      first lower bound. A DiFUB-style pass then takes the vertices in decreasing order
+ *      of their forward and backward distance from a central root r and searches from
+ *      each. Any pair (u, x) with dist(u, r) <= i-1 and dist(r, x) <= i-1 is at most
+ *      2(i-1) apart, so after level i is done the upper bound falls to that value. When
+ *      the bounds meet the diameter is exact. Vertices that cannot reach r, or cannot be
+ *      reached from it, are not covered by the bound and are searched first. </li>
+ * <li> The average path length is estimated from breadth-first searches out of sources
+ *      sampled without replacement. It is reported with a 95% confidence interval of
+ *      the ratio estimator, which shrinks to nothing once every source is sampled. The
+ *      interval rests on the normal approximation, so after few samples of a sparse graph,
+ *      where a handful of sources reach most of the pairs, it covers less often. </li>
+ * </ul>
+ * Both parts stop at the first of: the exact answer, or the end of the Budget.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class ApproximatePathStatistics<V> {
+
+	// z value of a two-sided 95% confidence interval
+	private static final double Z_95 = 1.96;
+	// Samples taken before the confidence interval is trusted for stopping
+	private static final int MIN_SAMPLES = 32;
+	// Double sweeps run before the bounding pass
+	private static final int SWEEPS = 2;
+
+	/**
+	 * Limits how long an estimate may run. A time budget is split evenly between the
+	 * diameter and the average, with time left over by the diameter going to the average.
+	 * An accuracy budget runs until the diameter bounds and the confidence interval of the
+	 * average are both within the relative error.
+	 */
+	public static class Budget {
+		private long millis;
+		private double relativeError;
+
+		private Budget(long millis, double relativeError) {
+			this.millis = millis;
+			this.relativeError = relativeError;
+		}
+
+		/**
+		 * Returns a budget of running time
+		 * @param millis The running time in milliseconds
+		 * @return The budget
+		 */
+		public static Budget time(long millis) {
+			return new Budget(millis, 0);
+		}
+
+		/**
+		 * Returns a budget of accuracy
+		 * @param relativeError The largest accepted (upper - lower) / lower of the diameter,
+		 * and half width / estimate of the average path length
+		 * @return The budget
+		 */
+		public static Budget relativeError(double relativeError) {
+			return new Budget(Long.MAX_VALUE, relativeError);
+		}
+	}
+
+	private CSRGraph<V> graph;
+	private int lowerBound;
+	private int upperBound;
+	private int diameterStart;
+	private int diameterEnd;
+	private double averagePathLength;
+	private double halfWidth;
+	private int samples;
+
+	private ApproximatePathStatistics(CSRGraph<V> graph) {
+		this.graph = graph;
+		diameterStart = -1;
+		diameterEnd = -1;
+	}
+
+	/**
+	 * Estimates the statistics of a graph
+	 * @param graph The graph to be analyzed
+	 * @param pool The pool the searches run on
+	 * @param budget When to stop
+	 * @param seed Seed for choosing the sampled sources
+	 * @return The estimated statistics
+	 */
+	public static <V> ApproximatePathStatistics<V> estimate(GraphIfc<V> graph, ForkJoinPool pool,
+			Budget budget, long seed) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		ApproximatePathStatistics<V> stats = new ApproximatePathStatistics<V>(csr);
+		long start = System.currentTimeMillis();
+		long diameterDeadline = budget.millis == Long.MAX_VALUE ? Long.MAX_VALUE : start + budget.millis / 2;
+		stats.boundDiameter(budget, diameterDeadline);
+		long averageDeadline = budget.millis == Long.MAX_VALUE ? Long.MAX_VALUE : start + budget.millis;
+		stats.sampleAverage(pool, budget, averageDeadline, new Random(seed));
+		return stats;
+	}
+
+	/**
+	 * Returns the largest distance found between two vertices
+	 * @return A lower bound on the diameter
+	 */
+	public int getDiameterLowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * Returns a distance no shortest path is longer than
+	 * @return An upper bound on the diameter
+	 */
+	public int getDiameterUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * Determines whether the bounds have met
+	 * @return True if the lower bound is the diameter
+	 */
+	public boolean isDiameterExact() {
+		return lowerBound == upperBound;
+	}
+
+	/**
+	 * Returns the start of the longest shortest path found
+	 * @return The start vertex, or null if no vertex can reach another
+	 */
+	public V getDiameterStart() {
+		return diameterStart == -1 ? null : graph.vertexAt(diameterStart);
+	}
+
+	/**
+	 * Returns the end of the longest shortest path found
+	 * @return The end vertex, or null if no vertex can reach another
+	 */
+	public V getDiameterEnd() {
+		return diameterEnd == -1 ? null : graph.vertexAt(diameterEnd);
+	}
+
+	/**
+	 * Returns the estimated average length of the shortest paths between reachable pairs
+	 * @return The estimate, or NaN if no sampled vertex can reach another
+	 */
+	public double getAveragePathLength() {
+		return averagePathLength;
+	}
+
+	/**
+	 * Returns the half width of the 95% confidence interval of the average path length
+	 * @return The half width, 0 if every vertex was sampled
+	 */
+	public double getConfidenceHalfWidth() {
+		return halfWidth;
+	}
+
+	/**
+	 * Returns the number of sources the average path length was estimated from
+	 * @return The number of sampled sources
+	 */
+	public int getSamples() {
+		return samples;
+	}
+
+
+	/**
+	 * Main method for unit testing. Compares the estimates with PathStatistics on random
+	 * digraphs: an unlimited budget must give the exact diameter and average, and every
+	 * other budget must give diameter bounds that bracket the true diameter. The 95%
+	 * confidence interval from a single round of samples should cover the true average
+	 * on about 95% of the graphs with at least two edges per vertex, and on fewer of the
+	 * sparser ones (see the class comment).
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(12);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		int graphs = 300;
+		int exact = 0;
+		int bracketed = 0;
+		int[] sampled = new int[2]; //graphs with fewer than 2n edges, and the others
+		int[] covered = new int[2];
+		for (int trial = 0; trial < graphs; trial++) {
+			int n = 1 + random.nextInt(200);
+			CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>();
+			for (int v = 0; v < n; v++) {
+				builder.addVertex(v);
+			}
+			int m = random.nextInt(4 * n + 1);
+			for (int e = 0; e < m; e++) {
+				builder.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			CSRGraph<Integer> graph = builder.build();
+			PathStatistics<Integer> truth = PathStatistics.compute(graph, pool);
+
+			ApproximatePathStatistics<Integer> full = estimate(graph, pool, Budget.relativeError(0), trial);
+			if (full.isDiameterExact() && full.getDiameterLowerBound() == truth.getDiameter()
+					&& (truth.getReachablePairs() == 0
+					|| Math.abs(full.getAveragePathLength() - truth.getAveragePathLength()) < 1e-9)) {
+				exact++;
+			}
+
+			boolean ok = true;
+			for (Budget budget : new Budget[] {Budget.time(0), Budget.relativeError(0.2), Budget.relativeError(0.5)}) {
+				ApproximatePathStatistics<Integer> stats = estimate(graph, pool, budget, trial);
+				ok &= stats.getDiameterLowerBound() <= truth.getDiameter() && truth.getDiameter() <= stats.getDiameterUpperBound();
+			}
+			if (ok) {
+				bracketed++;
+			}
+
+			ApproximatePathStatistics<Integer> quick = estimate(graph, pool, Budget.time(0), trial);
+			if (quick.getSamples() < n && truth.getReachablePairs() > 0 && !Double.isNaN(quick.getAveragePathLength())) {
+				int dense = m >= 2 * n ? 1 : 0;
+				sampled[dense]++;
+				if (Math.abs(quick.getAveragePathLength() - truth.getAveragePathLength()) <= quick.getConfidenceHalfWidth()) {
+					covered[dense]++;
+				}
+			}
+		}
+		pool.shutdown();
+		System.out.println("Unlimited budget matched PathStatistics on " + exact + " of " + graphs + " graphs");
+		System.out.println("Diameter bounds bracketed the diameter on " + bracketed + " of " + graphs + " graphs");
+		System.out.println("The 95% interval covered the average on " + covered[1] + " of " + sampled[1]
+				+ " sampled graphs with at least 2 edges per vertex, and " + covered[0] + " of " + sampled[0] + " sparser ones");
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	/**
+	 * Narrows the diameter bounds until they meet or the budget runs out
+	 */
+	private void boundDiameter(Budget budget, long deadline) {
+		CSRGraph<V> forward = graph;
+		CSRGraph<V> backward = graph.transpose();
+		int n = graph.numVertices();
+		upperBound = Math.max(0, n - 1);
+		if (graph.numEdges() == 0) {
+			upperBound = 0;
+			return;
+		}
+		int[] dist = new int[n];
+		Arrays.fill(dist, -1);
+		int[] queue = new int[n];
+
+		// The root has the most in- and out-edges; its forward and backward levels drive the pass
+		int root = 0;
+		for (int u = 1; u < n; u++) {
+			if (forward.degreeAt(u) + backward.degreeAt(u) > forward.degreeAt(root) + backward.degreeAt(root)) {
+				root = u;
+			}
+		}
+		int[] fromRoot = new int[n];
+		int[] toRoot = new int[n];
+		int eccForward = levels(forward, root, dist, queue, fromRoot);
+		int eccBackward = levels(backward, root, dist, queue, toRoot);
+		offerForward(root, fromRoot, eccForward);
+		offerBackward(root, toRoot, eccBackward);
+
+		// Double sweeps: the vertex farthest from the last one is a good place to look next
+		int u = root;
+		for (int sweep = 0; sweep < SWEEPS; sweep++) {
+			int tail = PathStatistics.bfs(forward, u, dist, queue);
+			int far = queue[tail - 1];
+			offer(u, far, dist[far]);
+			clear(dist, queue, tail);
+			tail = PathStatistics.bfs(backward, far, dist, queue);
+			u = queue[tail - 1];
+			offer(u, far, dist[u]);
+			clear(dist, queue, tail);
+		}
+
+		// Vertices outside the root's reach are searched exactly first
+		IntBuckets forwardLevels = new IntBuckets(n, eccBackward);
+		IntBuckets backwardLevels = new IntBuckets(n, eccForward);
+		boolean covered = true;
+		for (int v = 0; v < n && covered; v++) {
+			if (toRoot[v] == -1) {
+				searchForward(v, dist, queue);
+			} else {
+				forwardLevels.add(toRoot[v], v);
+			}
+			if (fromRoot[v] == -1) {
+				searchBackward(v, dist, queue);
+			} else {
+				backwardLevels.add(fromRoot[v], v);
+			}
+			covered = System.currentTimeMillis() < deadline;
+		}
+		if (!covered) {
+			return;
+		}
+		upperBound = Math.max(lowerBound, eccForward + eccBackward);
+		for (int i = Math.max(eccForward, eccBackward); i > 0 && !done(budget, deadline); i--) {
+			// After level i every remaining pair (x, y) has dist(x, root), dist(root, y) <= i-1
+			for (int k = forwardLevels.start(i); k < forwardLevels.end(i); k++) {
+				searchForward(forwardLevels.get(k), dist, queue);
+			}
+			for (int k = backwardLevels.start(i); k < backwardLevels.end(i); k++) {
+				searchBackward(backwardLevels.get(k), dist, queue);
+			}
+			upperBound = Math.max(lowerBound, Math.min(i - 1, eccBackward) + Math.min(i - 1, eccForward));
+		}
+	}
+
+	/**
+	 * Returns true once the diameter bounds satisfy the budget
+	 */
+	private boolean done(Budget budget, long deadline) {
+		return upperBound <= lowerBound || System.currentTimeMillis() >= deadline
+				|| upperBound - lowerBound <= budget.relativeError * lowerBound;
+	}
+
+	/**
+	 * Estimates the average path length from sampled sources until the budget runs out
+	 */
+	private void sampleAverage(ForkJoinPool pool, Budget budget, long deadline, Random random) {
+		int n = graph.numVertices();
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) { //Fisher-Yates shuffle
+			int j = random.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		long[] reached = new long[n]; //per sample: pairs reached, sum of their lengths
+		long[] lengths = new long[n];
+		ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> {
+			int[] dist = new int[n];
+			Arrays.fill(dist, -1);
+			return new int[][] {dist, new int[n]};
+		});
+		int round = Math.max(MIN_SAMPLES, 4 * pool.getParallelism());
+		averagePathLength = Double.NaN;
+		halfWidth = Double.NaN;
+		samples = 0;
+		while (samples < n) {
+			int from = samples;
+			int to = Math.min(n, samples + round);
+			Parallel.forRange(pool, from, to, 1, (first, last) -> {
+				int[][] arrays = scratch.get();
+				for (int i = first; i < last; i++) {
+					int tail = PathStatistics.bfs(graph, order[i], arrays[0], arrays[1]);
+					long sum = 0;
+					for (int q = 0; q < tail; q++) {
+						sum += arrays[0][arrays[1][q]];
+					}
+					reached[i] = tail - 1;
+					lengths[i] = sum;
+					clear(arrays[0], arrays[1], tail);
+				}
+			});
+			samples = to;
+			estimateAverage(reached, lengths, n);
+			if (System.currentTimeMillis() >= deadline || (samples >= MIN_SAMPLES && budget.relativeError > 0
+					&& halfWidth <= budget.relativeError * averagePathLength)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Computes the ratio estimate of the average and its confidence interval from the
+	 * first samples entries, with the finite population correction
+	 */
+	private void estimateAverage(long[] reached, long[] lengths, int n) {
+		double pairs = 0;
+		double total = 0;
+		for (int i = 0; i < samples; i++) {
+			pairs += reached[i];
+			total += lengths[i];
+		}
+		if (pairs == 0) {
+			averagePathLength = Double.NaN;
+			halfWidth = Double.NaN;
+			return;
+		}
+		double ratio = total / pairs;
+		double residuals = 0;
+		for (int i = 0; i < samples; i++) {
+			double r = lengths[i] - ratio * reached[i];
+			residuals += r * r;
+		}
+		double meanPairs = pairs / samples;
+		double variance = samples > 1 ? residuals / (samples - 1) : Double.POSITIVE_INFINITY;
+		double correction = 1.0 - (double)samples / n;
+		averagePathLength = ratio;
+		halfWidth = correction == 0 ? 0 : Z_95 * Math.sqrt(correction * variance / samples) / meanPairs;
+	}
+
+	/**
+	 * Runs a BFS and records the level of every vertex, -1 if unreached
+	 * @return The largest level
+	 */
+	private static int levels(CSRGraph<?> csr, int s, int[] dist, int[] queue, int[] level) {
+		int tail = PathStatistics.bfs(csr, s, dist, queue);
+		Arrays.fill(level, -1);
+		for (int i = 0; i < tail; i++) {
+			level[queue[i]] = dist[queue[i]];
+		}
+		int ecc = dist[queue[tail - 1]];
+		clear(dist, queue, tail);
+		return ecc;
+	}
+
+	private void searchForward(int u, int[] dist, int[] queue) {
+		int tail = PathStatistics.bfs(graph, u, dist, queue);
+		offer(u, queue[tail - 1], dist[queue[tail - 1]]);
+		clear(dist, queue, tail);
+	}
+
+	private void searchBackward(int x, int[] dist, int[] queue) {
+		int tail = PathStatistics.bfs(graph.transpose(), x, dist, queue);
+		offer(queue[tail - 1], x, dist[queue[tail - 1]]);
+		clear(dist, queue, tail);
+	}
+
+	private void offerForward(int root, int[] fromRoot, int ecc) {
+		for (int v = 0; v < fromRoot.length; v++) {
+			if (fromRoot[v] == ecc) {
+				offer(root, v, ecc);
+				return;
+			}
+		}
+	}
+
+	private void offerBackward(int root, int[] toRoot, int ecc) {
+		for (int v = 0; v < toRoot.length; v++) {
+			if (toRoot[v] == ecc) {
+				offer(v, root, ecc);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Raises the lower bound if the path from u to x is longer than any found so far
+	 */
+	private void offer(int u, int x, int length) {
+		if (length > lowerBound) {
+			lowerBound = length;
+			diameterStart = u;
+			diameterEnd = x;
+		}
+	}
+
+	private static void clear(int[] dist, int[] queue, int tail) {
+		for (int i = 0; i < tail; i++) {
+			dist[queue[i]] = -1;
+		}
+	}
+
+	/*
+	 * Vertices grouped by level, filled once with add and then read level by level
+	 */
+	private static class IntBuckets {
+		private int[] levelOf;
+		private int[] members;
+		private int[] offsets;
+		private int added;
+
+		IntBuckets(int n, int maxLevel) {
+			levelOf = new int[n];
+			members = new int[n];
+			offsets = new int[maxLevel + 2];
+			added = 0;
+		}
+
+		void add(int level, int v) {
+			levelOf[added] = level;
+			members[added++] = v;
+		}
+
+		int start(int level) {
+			sort();
+			return level + 1 < offsets.length ? offsets[level] : added;
+		}
+
+		int end(int level) {
+			sort();
+			return level + 1 < offsets.length ? offsets[level + 1] : added;
+		}
+
+		int get(int k) {
+			return members[k];
+		}
+
+		/**
+		 * Counting sort of the added vertices by level, on first read
+		 */
+		private void sort() {
+			if (levelOf == null) {
+				return;
+			}
+			for (int i = 0; i < added; i++) {
+				offsets[levelOf[i] + 1]++;
+			}
+			for (int l = 0; l + 1 < offsets.length; l++) {
+				offsets[l+1] += offsets[l];
+			}
+			int[] next = Arrays.copyOf(offsets, offsets.length);
+			int[] sorted = new int[added];
+			for (int i = 0; i < added; i++) {
+				sorted[next[levelOf[i]]++] = members[i];
+			}
+			members = sorted;
+			levelOf = null;
+		}
+	}
+}
@@ -0,0 +1,625 @@
+package graph;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+import util.FloatList;
+import util.IntList;
+
+/**
+ * An immutable directed graph stored in compressed sparse row form. Every vertex has
+ * a dense id 0...n-1, and the out-neighbors of vertex u are the ids
+ * targets[offsets[u]] ... targets[offsets[u+1]-1], kept in the order the edges were
+ * added. Traversals can walk these int arrays directly instead of chasing vertex
+ * references, while the usual GraphIfc methods still work on vertex objects. A weighted
+ * graph also keeps the weight of the edge at position k in weights[k].
+ *
+ * A CSRGraph is made by freezing another graph with of(), or with a Builder.
+ * Methods that would modify the graph throw UnsupportedOperationException.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class CSRGraph<V> implements GraphIfc<V> {
+
+	private List<V> vertices;
+	private Map<V, Integer> ids;
+	int[] offsets;
+	int[] targets;
+	float[] weights; //parallel to targets, null if the graph is unweighted
+	private CSRGraph<V> transpose; //built on first use
+	Components<V> weakComponents;   //computed on first use by GraphAlgorithms, guarded by this
+	Components<V> strongComponents;
+
+	private CSRGraph(List<V> vertices, Map<V, Integer> ids, int[] offsets, int[] targets, float[] weights) {
+		this.vertices = vertices;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Returns a frozen copy of a graph. The dense ids follow the iteration order of
+	 * getVertices(), and each vertex keeps the order of its neighbors and their weights.
+	 * The copy of a Graph is kept until the Graph next changes, so the algorithms called
+	 * on an unchanged Graph share one copy and one mapping between vertices and ids.
+	 * @param graph The graph to freeze
+	 * @return The graph itself if it is already a CSRGraph, otherwise a frozen copy
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> CSRGraph<V> of(GraphIfc<V> graph) {
+		if (graph instanceof CSRGraph) {
+			return (CSRGraph<V>) graph;
+		}
+		if (graph instanceof Graph && ((Graph<V>) graph).frozen != null) {
+			return ((Graph<V>) graph).frozen;
+		}
+		Builder<V> builder = new Builder<V>();
+		for (V v : graph.getVertices()) {
+			builder.addVertex(v);
+		}
+		if (graph instanceof Graph) { //the ids of a Graph carry over unchanged
+			Graph<V> g = (Graph<V>) graph;
+			for (int u = 0; u < g.vertices.size(); u++) {
+				IntList list = g.adjacencyList.get(u);
+				FloatList weights = g.weightList == null ? null : g.weightList.get(u);
+				for (int i = 0; i < list.size(); i++) {
+					if (weights != null) {
+						builder.addEdge(u, list.get(i), weights.get(i));
+					} else {
+						builder.addEdge(u, list.get(i));
+					}
+				}
+			}
+			CSRGraph<V> frozen = builder.build();
+			frozen.transpose = transposeOf(g, frozen);
+			frozen.transpose.transpose = frozen;
+			g.frozen = frozen;
+			return frozen;
+		}
+		for (V v : graph.getVertices()) {
+			for (V u : graph.getNeighbors(v)) {
+				if (graph.isWeighted()) {
+					builder.addEdge(v, u, graph.getWeight(v, u));
+				} else {
+					builder.addEdge(v, u);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/*********************************************************
+	 * 				Dense id access
+	 *********************************************************/
+
+	/**
+	 * Returns the dense id of a vertex
+	 * @param v A vertex
+	 * @return The id in 0...numVertices()-1, or -1 if v is not in the graph
+	 */
+	public int indexOf(V v) {
+		Integer id = ids.get(v);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the vertex with the given dense id
+	 * @param id A vertex id in 0...numVertices()-1
+	 * @return The vertex
+	 */
+	public V vertexAt(int id) {
+		return vertices.get(id);
+	}
+
+	/**
+	 * Returns the position of the first out-edge of a vertex
+	 * @param u A vertex id
+	 * @return The position of u's first out-edge
+	 */
+	public int neighborStart(int u) {
+		return offsets[u];
+	}
+
+	/**
+	 * Returns the position just past the last out-edge of a vertex
+	 * @param u A vertex id
+	 * @return One past the position of u's last out-edge
+	 */
+	public int neighborEnd(int u) {
+		return offsets[u+1];
+	}
+
+	/**
+	 * Returns the target of the edge at a position
+	 * @param k A position between neighborStart(u) and neighborEnd(u)
+	 * @return The id of the edge's target
+	 */
+	public int neighborAt(int k) {
+		return targets[k];
+	}
+
+	/**
+	 * Returns the weight of the edge at a position
+	 * @param k A position between neighborStart(u) and neighborEnd(u)
+	 * @return The weight of the edge, 1 if the graph is unweighted
+	 */
+	public float weightAt(int k) {
+		return weights == null ? 1f : weights[k];
+	}
+
+	/**
+	 * Returns the out-degree of a vertex
+	 * @param u A vertex id
+	 * @return The number of out-neighbors of u
+	 */
+	public int degreeAt(int u) {
+		return offsets[u+1] - offsets[u];
+	}
+
+	/**
+	 * Calls an action on the id of every out-neighbor of a vertex, in order
+	 * @param u A vertex id
+	 * @param action The action to call
+	 */
+	public void forEachNeighbor(int u, IntConsumer action) {
+		for (int k = offsets[u]; k < offsets[u+1]; k++) {
+			action.accept(targets[k]);
+		}
+	}
+
+	/**
+	 * Returns the graph with every edge reversed. The vertices keep their dense ids, the
+	 * in-neighbors of each vertex are listed in increasing order of id, and every reversed
+	 * edge keeps its weight. The transpose of a frozen Graph is built by of() from the
+	 * Graph's in-neighbor lists; any other transpose is built on the first call. Either
+	 * way it is shared by later calls.
+	 * @return The transposed graph, whose out-neighbors are the in-neighbors of this one
+	 */
+	public synchronized CSRGraph<V> transpose() {
+		if (transpose == null) {
+			int n = vertices.size();
+			int[] inOffsets = new int[n + 1];
+			for (int v : targets) {
+				inOffsets[v + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				inOffsets[v+1] += inOffsets[v];
+			}
+			int[] next = Arrays.copyOf(inOffsets, n);
+			int[] sources = new int[targets.length];
+			float[] inWeights = weights == null ? null : new float[weights.length];
+			for (int u = 0; u < n; u++) {
+				for (int k = offsets[u]; k < offsets[u+1]; k++) {
+					int slot = next[targets[k]]++;
+					sources[slot] = u;
+					if (inWeights != null) {
+						inWeights[slot] = weights[k];
+					}
+				}
+			}
+			transpose = new CSRGraph<V>(vertices, ids, inOffsets, sources, inWeights);
+			transpose.transpose = this;
+		}
+		return transpose;
+	}
+
+	/**
+	 * Builds the transpose of a frozen Graph from the in-neighbor lists the Graph keeps, so
+	 * the rows need no counting pass over the edges. Each row is sorted into increasing order
+	 * of id, and the weights, if any, are placed by one pass over the out-edges, which visits
+	 * the sources of every row in that same order.
+	 */
+	private static <V> CSRGraph<V> transposeOf(Graph<V> g, CSRGraph<V> csr) {
+		int n = csr.vertices.size();
+		int[] inOffsets = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			inOffsets[v+1] = inOffsets[v] + g.inAdjacencyList.get(v).size();
+		}
+		int[] sources = new int[inOffsets[n]];
+		for (int v = 0; v < n; v++) {
+			g.inAdjacencyList.get(v).copyTo(sources, inOffsets[v]);
+			Arrays.sort(sources, inOffsets[v], inOffsets[v+1]);
+		}
+		float[] inWeights = null;
+		if (csr.weights != null) {
+			inWeights = new float[csr.weights.length];
+			int[] next = Arrays.copyOf(inOffsets, n);
+			for (int u = 0; u < n; u++) {
+				for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+					inWeights[next[csr.targets[k]]++] = csr.weights[k];
+				}
+			}
+		}
+		return new CSRGraph<V>(csr.vertices, csr.ids, inOffsets, sources, inWeights);
+	}
+
+	/**
+	 * Returns the subgraph induced by some of the vertices: those vertices, and the edges
+	 * between two of them. The vertices keep their relative order and get new dense ids
+	 * 0...k-1, and every vertex keeps the order and weights of its remaining edges.
+	 * @param keep keep[id] is true for the vertices to be kept, by dense id
+	 * @return The induced subgraph, a separate compact CSRGraph
+	 */
+	public CSRGraph<V> subgraph(boolean[] keep) {
+		int n = vertices.size();
+		int[] newId = new int[n];
+		List<V> kept = new ArrayList<V>();
+		Map<V, Integer> keptIds = new LinkedHashMap<V, Integer>();
+		for (int u = 0; u < n; u++) {
+			if (keep[u]) {
+				newId[u] = kept.size();
+				keptIds.put(vertices.get(u), kept.size());
+				kept.add(vertices.get(u));
+			} else {
+				newId[u] = -1;
+			}
+		}
+		int[] subOffsets = new int[kept.size() + 1];
+		int m = 0;
+		for (int u = 0; u < n; u++) {
+			if (keep[u]) {
+				for (int k = offsets[u]; k < offsets[u+1]; k++) {
+					if (keep[targets[k]]) {
+						m++;
+					}
+				}
+				subOffsets[newId[u] + 1] = m;
+			}
+		}
+		int[] subTargets = new int[m];
+		float[] subWeights = weights == null ? null : new float[m];
+		int e = 0;
+		for (int u = 0; u < n; u++) {
+			if (keep[u]) {
+				for (int k = offsets[u]; k < offsets[u+1]; k++) {
+					if (keep[targets[k]]) {
+						if (subWeights != null) {
+							subWeights[e] = weights[k];
+						}
+						subTargets[e++] = newId[targets[k]];
+					}
+				}
+			}
+		}
+		return new CSRGraph<V>(kept, keptIds, subOffsets, subTargets, subWeights);
+	}
+
+	/*********************************************************
+	 * 				GraphIfc methods
+	 *********************************************************/
+
+	/**
+	 * Returns the number of vertices in the graph
+	 * @return The number of vertices in the graph
+	 */
+	public int numVertices() {
+		return vertices.size();
+	}
+
+	/**
+	 * Returns the number of edges in the graph
+	 * @return The number of edges in the graph
+	 */
+	public int numEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Not supported, the graph is immutable
+	 * @throws UnsupportedOperationException always
+	 */
+	public void clear() {
+		throw new UnsupportedOperationException("A CSRGraph cannot be modified");
+	}
+
+	/**
+	 * Not supported, the graph is immutable
+	 * @throws UnsupportedOperationException always
+	 */
+	public void addVertex(V v) {
+		throw new UnsupportedOperationException("A CSRGraph cannot be modified");
+	}
+
+	/**
+	 * Not supported, the graph is immutable
+	 * @throws UnsupportedOperationException always
+	 */
+	public void addEdge(V u, V v) {
+		throw new UnsupportedOperationException("A CSRGraph cannot be modified");
+	}
+
+	/**
+	 * Not supported, the graph is immutable
+	 * @throws UnsupportedOperationException always
+	 */
+	public void addEdge(V u, V v, float weight) {
+		throw new UnsupportedOperationException("A CSRGraph cannot be modified");
+	}
+
+	/**
+	 * Determines whether the graph stores edge weights
+	 * @return True if the graph was built with weighted edges
+	 */
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	/**
+	 * Returns the weight of the edge from v to u.
+	 * @param v A node in the graph
+	 * @param u A node in the graph
+	 * @return The weight of the edge, 1 if the graph is unweighted
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph, or there is no such edge
+	 */
+	public float getWeight(V v, V u) {
+		int from = indexOf(v);
+		int to = indexOf(u);
+		if (from == -1 || to == -1) {
+			throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+		}
+		for (int k = offsets[from]; k < offsets[from+1]; k++) {
+			if (targets[k] == to) {
+				return weightAt(k);
+			}
+		}
+		throw new IllegalArgumentException("There is no edge from " + v + " to " + u);
+	}
+
+	/**
+	 * Returns the set of all vertices in the graph, in order of their dense ids.
+	 * @return A read-only set containing all vertices in the graph
+	 */
+	public Set<V> getVertices() {
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+
+	/**
+	 * Returns the neighbors of v in the graph, as a read-only view over the edge array.
+	 * @param v An existing node in the graph
+	 * @return All neighbors of v in the graph, or null if v is not in the graph
+	 */
+	public List<V> getNeighbors(V v) {
+		int u = indexOf(v);
+		if (u == -1) {
+			return null;
+		}
+		return new AbstractList<V>() {
+			@Override
+			public V get(int i) {
+				if (i < 0 || i >= size()) {
+					throw new IndexOutOfBoundsException("Index: " + i);
+				}
+				return vertices.get(targets[offsets[u] + i]);
+			}
+
+			@Override
+			public int size() {
+				return offsets[u+1] - offsets[u];
+			}
+		};
+	}
+
+	/**
+	 * Returns the in-neighbors of v in the graph, the vertices u for which an edge (u, v) exists.
+	 * @param v An existing node in the graph
+	 * @return All in-neighbors of v in increasing order of id, or null if v is not in the graph
+	 */
+	public List<V> getInNeighbors(V v) {
+		return transpose().getNeighbors(v);
+	}
+
+	/**
+	 * Returns the in-degree of the vertex.
+	 * @param v A vertex in the graph
+	 * @return The number of edges that end at v
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int inDegree(V v) {
+		return transpose().degree(v);
+	}
+
+	/**
+	 * Determines whether the given vertex is contained in the graph.
+	 * @param v The vertex to be tested.
+	 * @return True if v exists in the graph, false otherwise.
+	 */
+	public boolean containsNode(V v) {
+		return ids.containsKey(v);
+	}
+
+	/**
+	 * Determines whether an edge exists from v to u.
+	 * @param v A node in the graph
+	 * @param u A node in the graph
+	 * @return True if an edge exists between the two vertices
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public boolean edgeExists(V v, V u) {
+		int from = indexOf(v);
+		int to = indexOf(u);
+		if (from == -1 || to == -1) {
+			throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+		}
+		for (int k = offsets[from]; k < offsets[from+1]; k++) {
+			if (targets[k] == to) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the out-degree of the vertex.
+	 * @param v A vertex in the graph
+	 * @return The degree of the vertex
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int degree(V v) {
+		int u = indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Cannot find degree of vertex " + v + " not in graph.");
+		}
+		return degreeAt(u);
+	}
+
+	/**
+	 * Returns a string representation of the graph, in the same form as Graph.
+	 * @return A string representation of the graph
+	 */
+	public String toString() {
+		StringBuilder str = new StringBuilder("{");
+		for (int u = 0; u < vertices.size(); u++) {
+			if (u > 0) {
+				str.append(", ");
+			}
+			str.append(vertices.get(u)).append("=").append(getNeighbors(vertices.get(u)));
+		}
+		return str.append("}").toString();
+	}
+
+	/**
+	 * Collects vertices and edges and then builds a CSRGraph in one step. Vertices get
+	 * dense ids in the order they are first added. Repeated edges are kept once, at the
+	 * position and with the weight they were first added. The graph is weighted if any
+	 * edge was added with a weight, and the edges added without one get weight 1.
+	 */
+	public static class Builder<V> {
+		private List<V> vertices = new ArrayList<V>();
+		private Map<V, Integer> ids = new LinkedHashMap<V, Integer>();
+		private IntList edges = new IntList();
+		private FloatList weights; //one per edge, null until the first weighted edge
+
+		/**
+		 * Adds a vertex. This method has no effect if the vertex was already added.
+		 * @param v The vertex to be added
+		 * @return The dense id of the vertex
+		 */
+		public int addVertex(V v) {
+			Integer id = ids.get(v);
+			if (id == null) {
+				id = vertices.size();
+				ids.put(v, id);
+				vertices.add(v);
+			}
+			return id;
+		}
+
+		/**
+		 * Adds an edge from u to v.
+		 * @param u A vertex that was already added
+		 * @param v A vertex that was already added
+		 * @throws IllegalArgumentException if either vertex was not added
+		 */
+		public void addEdge(V u, V v) {
+			Integer from = ids.get(u);
+			Integer to = ids.get(v);
+			if (from == null || to == null) {
+				throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+			}
+			addEdge(from.intValue(), to.intValue());
+		}
+
+		/**
+		 * Adds an edge between two dense ids.
+		 * @param u The id of a vertex that was already added
+		 * @param v The id of a vertex that was already added
+		 */
+		public void addEdge(int u, int v) {
+			if (u < 0 || u >= vertices.size() || v < 0 || v >= vertices.size()) {
+				throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+			}
+			edges.add(u);
+			edges.add(v);
+			if (weights != null) {
+				weights.add(1f);
+			}
+		}
+
+		/**
+		 * Adds an edge from u to v with a weight.
+		 * @param u A vertex that was already added
+		 * @param v A vertex that was already added
+		 * @param weight The weight of the edge
+		 * @throws IllegalArgumentException if either vertex was not added
+		 */
+		public void addEdge(V u, V v, float weight) {
+			Integer from = ids.get(u);
+			Integer to = ids.get(v);
+			if (from == null || to == null) {
+				throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+			}
+			addEdge(from.intValue(), to.intValue(), weight);
+		}
+
+		/**
+		 * Adds an edge between two dense ids with a weight.
+		 * @param u The id of a vertex that was already added
+		 * @param v The id of a vertex that was already added
+		 * @param weight The weight of the edge
+		 */
+		public void addEdge(int u, int v, float weight) {
+			if (weights == null) { //the edges so far have weight 1
+				weights = new FloatList(Math.max(16, edges.size() / 2 + 1));
+				for (int i = 0; i < edges.size(); i += 2) {
+					weights.add(1f);
+				}
+			}
+			addEdge(u, v);
+			weights.set(weights.size() - 1, weight);
+		}
+
+		/**
+		 * Builds the graph
+		 * @return A CSRGraph with the added vertices and edges
+		 */
+		public CSRGraph<V> build() {
+			int n = vertices.size();
+			int m = edges.size() / 2;
+			int[] offsets = new int[n + 1];
+			for (int i = 0; i < edges.size(); i += 2) {
+				offsets[edges.get(i) + 1]++;
+			}
+			for (int u = 0; u < n; u++) {
+				offsets[u+1] += offsets[u];
+			}
+			int[] next = Arrays.copyOf(offsets, n);
+			int[] targets = new int[m];
+			float[] edgeWeights = weights == null ? null : new float[m];
+			for (int i = 0; i < edges.size(); i += 2) {
+				int slot = next[edges.get(i)]++;
+				targets[slot] = edges.get(i+1);
+				if (edgeWeights != null) {
+					edgeWeights[slot] = weights.get(i/2);
+				}
+			}
+
+			// Drop repeated edges, keeping the first occurrence within each row
+			int[] seen = new int[n];
+			Arrays.fill(seen, -1);
+			int kept = 0;
+			int rowStart = 0;
+			for (int u = 0; u < n; u++) {
+				for (int k = rowStart; k < offsets[u+1]; k++) {
+					if (seen[targets[k]] != u) {
+						seen[targets[k]] = u;
+						if (edgeWeights != null) {
+							edgeWeights[kept] = edgeWeights[k];
+						}
+						targets[kept++] = targets[k];
+					}
+				}
+				rowStart = offsets[u+1];
+				offsets[u+1] = kept;
+			}
+			if (kept < m) {
+				targets = Arrays.copyOf(targets, kept);
+				if (edgeWeights != null) {
+					edgeWeights = Arrays.copyOf(edgeWeights, kept);
+				}
+			}
+			return new CSRGraph<V>(new ArrayList<V>(vertices), new LinkedHashMap<V, Integer>(ids), offsets, targets,
+					edgeWeights);
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.Parallel;
+
+/**
+ * A centrality score for every vertex of a graph, with the top-k vertices by score.
+ * Two scores are offered, both computed on a ForkJoinPool over the frozen CSR form:
+ * <ul>
+ * <li> PageRank, the share of time a random surfer spends at each vertex when it follows
+ *      a random out-edge with probability damping and jumps to a random vertex otherwise.
+ *      Every iteration pulls: each vertex sums the contributions of its in-neighbors over
+ *      the transpose, so threads write only their own ranks and need no synchronization.
+ *      Vertices without out-edges spread their rank over all vertices. </li>
+ * <li> Betweenness, the number of shortest paths between other pairs of vertices that pass
+ *      through each vertex, split evenly among ties (Brandes' algorithm). Each source
+ *      takes one breadth-first search and one sweep back over it, the sources are divided
+ *      among the threads, and every thread adds into its own array. It can be estimated
+ *      from a random sample of sources, scaled up to all of them. </li>
+ * </ul>
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class Centrality<V> {
+
+	// Defaults for PageRank: the usual damping factor, and the total change in rank below which it stops
+	private static final double DAMPING = 0.85;
+	private static final double TOLERANCE = 1e-9;
+	private static final int MAX_ITERATIONS = 100;
+
+	private CSRGraph<V> graph;
+	private double[] scores;
+	private int iterations;
+
+	private Centrality(CSRGraph<V> graph, double[] scores, int iterations) {
+		this.graph = graph;
+		this.scores = scores;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Computes PageRank with damping 0.85 until the ranks change by less than 1e-9 in total,
+	 * or for at most 100 iterations
+	 * @param graph The graph to be ranked
+	 * @param pool The pool the iterations run on
+	 * @return The PageRank of every vertex, summing to 1
+	 */
+	public static <V> Centrality<V> pageRank(GraphIfc<V> graph, ForkJoinPool pool) {
+		return pageRank(graph, pool, DAMPING, TOLERANCE, MAX_ITERATIONS);
+	}
+
+	/**
+	 * Computes PageRank by power iteration
+	 * @param graph The graph to be ranked
+	 * @param pool The pool the iterations run on
+	 * @param damping The probability of following an edge rather than jumping, in [0, 1)
+	 * @param tolerance Stop once the ranks change by less than this in total (L1 norm)
+	 * @param maxIterations Stop after this many iterations even if the ranks still change
+	 * @return The PageRank of every vertex, summing to 1
+	 * @throws IllegalArgumentException if damping is outside [0, 1)
+	 */
+	public static <V> Centrality<V> pageRank(GraphIfc<V> graph, ForkJoinPool pool, double damping,
+			double tolerance, int maxIterations) {
+		if (!(damping >= 0 && damping < 1)) {
+			throw new IllegalArgumentException("The damping factor must be in [0, 1), not " + damping);
+		}
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		CSRGraph<V> reverse = csr.transpose();
+		int n = csr.numVertices();
+		double[] rank = new double[n];
+		double[] next = new double[n];
+		double[] contribution = new double[n]; //rank[u] / outdegree(u)
+		Arrays.fill(rank, 1.0 / n);
+		int grain = Parallel.grain(pool, n);
+		int iterations = 0;
+		double change = Double.POSITIVE_INFINITY;
+		while (iterations < maxIterations && change >= tolerance) {
+			double[] current = rank;
+			double[] sums = new double[2]; //rank without out-edges, total change
+			Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+				double dangling = 0;
+				for (int u = from; u < to; u++) {
+					int degree = csr.degreeAt(u);
+					if (degree == 0) {
+						dangling += current[u];
+						contribution[u] = 0;
+					} else {
+						contribution[u] = current[u] / degree;
+					}
+				}
+				add(sums, 0, dangling);
+			});
+			double base = (1 - damping) / n + damping * sums[0] / n;
+			double[] updated = next;
+			Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+				double delta = 0;
+				for (int v = from; v < to; v++) {
+					double pulled = 0;
+					for (int k = reverse.offsets[v]; k < reverse.offsets[v+1]; k++) {
+						pulled += contribution[reverse.targets[k]];
+					}
+					updated[v] = base + damping * pulled;
+					delta += Math.abs(updated[v] - current[v]);
+				}
+				add(sums, 1, delta);
+			});
+			change = sums[1];
+			next = rank;
+			rank = updated;
+			iterations++;
+		}
+		return new Centrality<V>(csr, rank, iterations);
+	}
+
+	/**
+	 * Computes the exact betweenness of every vertex, with one search from every source
+	 * @param graph The graph to be ranked
+	 * @param pool The pool the searches run on
+	 * @return The betweenness of every vertex, counting ordered pairs
+	 */
+	public static <V> Centrality<V> betweenness(GraphIfc<V> graph, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int n = csr.numVertices();
+		int[] sources = new int[n];
+		for (int s = 0; s < n; s++) {
+			sources[s] = s;
+		}
+		return new Centrality<V>(csr, brandes(csr, sources, pool), 0);
+	}
+
+	/**
+	 * Estimates the betweenness of every vertex from the searches of a random sample of
+	 * sources, scaled by the number of vertices over the number of samples
+	 * @param graph The graph to be ranked
+	 * @param pool The pool the searches run on
+	 * @param samples The number of sources, all of them if it is at least the number of vertices
+	 * @param seed The seed of the random choice of sources
+	 * @return The estimated betweenness of every vertex, counting ordered pairs
+	 */
+	public static <V> Centrality<V> betweenness(GraphIfc<V> graph, ForkJoinPool pool, int samples, long seed) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int n = csr.numVertices();
+		if (samples >= n) {
+			return betweenness(csr, pool);
+		}
+		int[] order = new int[n];
+		for (int s = 0; s < n; s++) {
+			order[s] = s;
+		}
+		Random random = new Random(seed);
+		for (int i = 0; i < samples; i++) { //the first samples entries of a shuffle
+			int j = i + random.nextInt(n - i);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		double[] scores = brandes(csr, Arrays.copyOf(order, samples), pool);
+		double scale = (double)n / Math.max(1, samples);
+		for (int v = 0; v < n; v++) {
+			scores[v] *= scale;
+		}
+		return new Centrality<V>(csr, scores, 0);
+	}
+
+	/**
+	 * Returns the score of a vertex
+	 * @param v A vertex in the graph
+	 * @return The score of v
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public double getScore(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Cannot find score of vertex " + v + " not in graph.");
+		}
+		return scores[u];
+	}
+
+	/**
+	 * Returns the number of PageRank iterations run
+	 * @return The number of iterations, 0 for betweenness
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Returns the k vertices with the highest scores. They are picked in one pass with a
+	 * min-heap that holds the best k seen so far, so only k vertices are ever sorted.
+	 * Ties go to the earlier vertex in the order of getVertices().
+	 * @param k The number of vertices to return
+	 * @return The vertices with the highest scores, highest first
+	 */
+	public List<V> top(int k) {
+		int size = 0;
+		int[] heap = new int[Math.max(0, Math.min(k, scores.length))];
+		for (int v = 0; v < scores.length && heap.length > 0; v++) {
+			if (size < heap.length) {
+				heap[size] = v;
+				siftUp(heap, size++);
+			} else if (better(v, heap[0])) {
+				heap[0] = v;
+				siftDown(heap, 0, size);
+			}
+		}
+		List<V> top = new ArrayList<V>();
+		for (int end = size - 1; end >= 0; end--) { //pop the worst of the best first
+			top.add(graph.vertexAt(heap[0]));
+			heap[0] = heap[end];
+			siftDown(heap, 0, end);
+		}
+		for (int i = 0, j = top.size() - 1; i < j; i++, j--) {
+			V swap = top.get(i);
+			top.set(i, top.get(j));
+			top.set(j, swap);
+		}
+		return top;
+	}
+
+
+	/**
+	 * Main method for unit testing. Checks the scores on seeded random digraphs against
+	 * simple sequential versions: PageRank against 500 rounds of push-style power
+	 * iteration, and betweenness against a count over all triples (s, v, t) of the
+	 * shortest paths from s to t through v. Betweenness sampled from every source must
+	 * equal the exact one, and top(k) must list the highest scores in order.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(20);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		int graphs = 300;
+		int ranks = 0;
+		int paths = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			int n = 1 + random.nextInt(40);
+			CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>();
+			for (int v = 0; v < n; v++) {
+				builder.addVertex(v);
+			}
+			int m = random.nextInt(3 * n + 1);
+			for (int e = 0; e < m; e++) {
+				builder.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			CSRGraph<Integer> graph = builder.build();
+
+			double[] rank = new double[n];
+			Arrays.fill(rank, 1.0 / n);
+			for (int round = 0; round < 500; round++) {
+				double[] next = new double[n];
+				double dangling = 0;
+				for (int u = 0; u < n; u++) {
+					if (graph.degreeAt(u) == 0) {
+						dangling += rank[u];
+					}
+					for (int k = graph.offsets[u]; k < graph.offsets[u+1]; k++) {
+						next[graph.targets[k]] += DAMPING * rank[u] / graph.degreeAt(u);
+					}
+				}
+				for (int v = 0; v < n; v++) {
+					next[v] += (1 - DAMPING) / n + DAMPING * dangling / n;
+				}
+				rank = next;
+			}
+			Centrality<Integer> pageRank = pageRank(graph, pool);
+			boolean ok = true;
+			double total = 0;
+			for (int v = 0; v < n; v++) {
+				ok &= Math.abs(pageRank.getScore(v) - rank[v]) < 1e-7;
+				total += pageRank.getScore(v);
+			}
+			ok &= Math.abs(total - 1) < 1e-9;
+			int k = random.nextInt(n + 3);
+			List<Integer> top = pageRank.top(k);
+			Integer[] order = new Integer[n];
+			for (int v = 0; v < n; v++) {
+				order[v] = v;
+			}
+			Arrays.sort(order, (a, b) -> pageRank.getScore(a) != pageRank.getScore(b)
+					? Double.compare(pageRank.getScore(b), pageRank.getScore(a)) : Integer.compare(a, b));
+			ok &= top.equals(Arrays.asList(order).subList(0, Math.min(k, n)));
+			if (ok) {
+				ranks++;
+			}
+
+			int[][] dist = new int[n][n]; //dist[s][t], and count[s][t] shortest paths
+			double[][] count = new double[n][n];
+			int[] queue = new int[n];
+			for (int s = 0; s < n; s++) {
+				Arrays.fill(dist[s], -1);
+				int tail = PathStatistics.bfs(graph, s, dist[s], queue);
+				count[s][s] = 1;
+				for (int i = 0; i < tail; i++) { //the queue is in order of distance
+					int u = queue[i];
+					for (int e = graph.offsets[u]; e < graph.offsets[u+1]; e++) {
+						int w = graph.targets[e];
+						if (dist[s][w] == dist[s][u] + 1) {
+							count[s][w] += count[s][u];
+						}
+					}
+				}
+			}
+			double[] through = new double[n];
+			for (int s = 0; s < n; s++) {
+				for (int t = 0; t < n; t++) {
+					for (int v = 0; v < n; v++) {
+						if (v != s && v != t && s != t && dist[s][v] > 0 && dist[v][t] > 0
+								&& dist[s][v] + dist[v][t] == dist[s][t]) {
+							through[v] += count[s][v] * count[v][t] / count[s][t];
+						}
+					}
+				}
+			}
+			Centrality<Integer> exact = betweenness(graph, pool);
+			Centrality<Integer> everySource = betweenness(graph, pool, n, trial);
+			ok = true;
+			for (int v = 0; v < n; v++) {
+				ok &= Math.abs(exact.getScore(v) - through[v]) < 1e-6 && Math.abs(everySource.getScore(v) - through[v]) < 1e-6;
+			}
+			if (ok) {
+				paths++;
+			}
+		}
+		pool.shutdown();
+		System.out.println("PageRank and top(k) matched power iteration on " + ranks + " of " + graphs + " graphs");
+		System.out.println("Betweenness matched the count over all triples on " + paths + " of " + graphs + " graphs");
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	/**
+	 * Runs Brandes' algorithm from each of the sources in parallel
+	 * @return The sum over the sources of the dependency of each vertex
+	 */
+	private static double[] brandes(CSRGraph<?> csr, int[] sources, ForkJoinPool pool) {
+		int n = csr.numVertices();
+		List<double[]> partials = new ArrayList<double[]>(); //one per thread
+		ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> {
+			Scratch arrays = new Scratch(n);
+			synchronized (partials) {
+				partials.add(arrays.centrality);
+			}
+			return arrays;
+		});
+		Parallel.forRange(pool, 0, sources.length, Parallel.grain(pool, sources.length), (from, to) -> {
+			Scratch arrays = scratch.get();
+			for (int i = from; i < to; i++) {
+				accumulate(csr, sources[i], arrays);
+			}
+		});
+		double[] total = new double[n];
+		for (double[] partial : partials) {
+			for (int v = 0; v < n; v++) {
+				total[v] += partial[v];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Adds the dependencies of source s to arrays.centrality. The vertices before w on
+	 * shortest paths are its in-neighbors one level closer, so they are found by walking
+	 * out-edges from the closer level instead of keeping predecessor lists.
+	 */
+	private static void accumulate(CSRGraph<?> csr, int s, Scratch arrays) {
+		int[] dist = arrays.dist;
+		double[] paths = arrays.paths;
+		double[] dependency = arrays.dependency;
+		int[] queue = arrays.queue;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = s;
+		dist[s] = 0;
+		paths[s] = 1;
+		while (head < tail) {
+			int u = queue[head++];
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int w = csr.targets[k];
+				if (dist[w] == -1) {
+					dist[w] = dist[u] + 1;
+					queue[tail++] = w;
+				}
+				if (dist[w] == dist[u] + 1) {
+					paths[w] += paths[u];
+				}
+			}
+		}
+		for (int i = tail - 1; i >= 0; i--) { //in order of decreasing distance
+			int u = queue[i];
+			double sum = 0;
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int w = csr.targets[k];
+				if (dist[w] == dist[u] + 1) {
+					sum += (1 + dependency[w]) / paths[w];
+				}
+			}
+			dependency[u] = paths[u] * sum;
+			if (u != s) {
+				arrays.centrality[u] += dependency[u];
+			}
+		}
+		for (int i = 0; i < tail; i++) {
+			int u = queue[i];
+			dist[u] = -1;
+			paths[u] = 0;
+			dependency[u] = 0;
+		}
+	}
+
+	/**
+	 * Returns true if vertex a ranks above vertex b
+	 */
+	private boolean better(int a, int b) {
+		return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+	}
+
+	private void siftUp(int[] heap, int slot) {
+		int v = heap[slot];
+		while (slot > 0 && better(heap[(slot - 1) / 2], v)) {
+			heap[slot] = heap[(slot - 1) / 2];
+			slot = (slot - 1) / 2;
+		}
+		heap[slot] = v;
+	}
+
+	private void siftDown(int[] heap, int slot, int size) {
+		int v = heap[slot];
+		while (2*slot + 1 < size) {
+			int child = 2*slot + 1;
+			if (child + 1 < size && better(heap[child], heap[child + 1])) {
+				child++;
+			}
+			if (!better(v, heap[child])) {
+				break;
+			}
+			heap[slot] = heap[child];
+			slot = child;
+		}
+		heap[slot] = v;
+	}
+
+	private static void add(double[] sums, int i, double value) {
+		synchronized (sums) {
+			sums[i] += value;
+		}
+	}
+
+	/*
+	 * The arrays of one thread's searches. dist is -1, and paths and dependency 0, for every
+	 * vertex between searches.
+	 */
+	private static class Scratch {
+		int[] dist;
+		double[] paths;
+		double[] dependency;
+		int[] queue;
+		double[] centrality;
+
+		Scratch(int n) {
+			dist = new int[n];
+			Arrays.fill(dist, -1);
+			paths = new double[n];
+			dependency = new double[n];
+			queue = new int[n];
+			centrality = new double[n];
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.IntList;
+import util.Parallel;
+
+/**
+ * Communities of a graph found by label propagation, with their modularity. Edges are
+ * treated as undirected and weighted, so a vertex is pulled towards the labels of both
+ * its out-neighbors and its in-neighbors, in proportion to the edge weights.
+ *
+ * Every vertex starts with a label of its own. In each round every vertex takes the label
+ * with the largest total weight among its neighbors, keeping its own label on a tie, until
+ * a round changes no label. The labels are a plain int[] updated asynchronously: the
+ * threads of the pool split the schedule of vertices and each vertex reads whatever labels
+ * its neighbors hold at that moment, which converges in fewer rounds than updating from the
+ * previous round's labels. Ties among other labels are broken by a hash of the label and
+ * the round, so that a few labels do not spread merely because they have small ids.
+ *
+ * The seed fixes the schedule and the tie-breaking, but not the order in which the threads
+ * interleave their updates. The result is reproducible for a given seed only on a pool of
+ * one thread; with more threads the communities and the modularity can differ between runs.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class Communities<V> {
+
+	/**
+	 * The order in which each round visits the vertices
+	 */
+	public enum Schedule { SHUFFLED, DEGREE }
+
+	// Rounds after which the labels are taken as they are even if some still change
+	private static final int MAX_ROUNDS = 100;
+
+	private Components<V> partition;
+	private double modularity;
+	private int rounds;
+
+	private Communities(Components<V> partition, double modularity, int rounds) {
+		this.partition = partition;
+		this.modularity = modularity;
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Finds communities visiting the vertices in a shuffled order
+	 * @param graph The graph to be clustered
+	 * @param pool The pool the rounds run on
+	 * @param seed The seed of the shuffle and the tie-breaking, which makes the result
+	 *        reproducible only if the pool has a single thread
+	 * @return The communities of the graph
+	 */
+	public static <V> Communities<V> detect(GraphIfc<V> graph, ForkJoinPool pool, long seed) {
+		return detect(graph, pool, Schedule.SHUFFLED, seed);
+	}
+
+	/**
+	 * Finds communities by asynchronous label propagation
+	 * @param graph The graph to be clustered
+	 * @param pool The pool the rounds run on
+	 * @param schedule SHUFFLED visits the vertices in a random order, DEGREE in order of
+	 *        decreasing degree, so that hubs settle their labels first
+	 * @param seed The seed of the shuffle and the tie-breaking, which makes the result
+	 *        reproducible only if the pool has a single thread, since with more threads the
+	 *        updates of the shared labels interleave differently from run to run
+	 * @return The communities of the graph
+	 */
+	public static <V> Communities<V> detect(GraphIfc<V> graph, ForkJoinPool pool, Schedule schedule, long seed) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		CSRGraph<V> reverse = csr.transpose();
+		int n = csr.numVertices();
+		int[] label = new int[n];
+		for (int v = 0; v < n; v++) {
+			label[v] = v;
+		}
+		int[] order = schedule(csr, reverse, schedule, seed);
+		ThreadLocal<Tally> tallies = ThreadLocal.withInitial(() -> new Tally(n));
+		int rounds = 0;
+		int changed = n;
+		while (changed > 0 && rounds < MAX_ROUNDS) {
+			int salt = (int)seed + 31 * rounds;
+			int[] changes = new int[1];
+			Parallel.forRange(pool, 0, n, Parallel.grain(pool, n), (from, to) -> {
+				Tally tally = tallies.get();
+				int count = 0;
+				for (int i = from; i < to; i++) {
+					int v = order[i];
+					tally.add(csr, v, label);
+					tally.add(reverse, v, label);
+					int best = tally.best(label[v], salt);
+					if (best != label[v]) {
+						label[v] = best;
+						count++;
+					}
+				}
+				synchronized (changes) {
+					changes[0] += count;
+				}
+			});
+			changed = changes[0];
+			rounds++;
+		}
+		int[] community = new int[n]; //renumber the labels in order of their first vertex
+		int[] id = new int[n];
+		Arrays.fill(id, -1);
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			if (id[label[v]] == -1) {
+				id[label[v]] = count++;
+			}
+			community[v] = id[label[v]];
+		}
+		Components<V> partition = new Components<V>(csr, community, count);
+		return new Communities<V>(partition, modularity(csr, partition), rounds);
+	}
+
+	/**
+	 * Returns the modularity of a partition of a directed graph: the fraction of the edge
+	 * weight inside the parts, minus the fraction expected if every edge kept its source
+	 * and its weight but ended at a vertex chosen in proportion to in-weight,
+	 * Q = sum over parts c of (W_c / W) - (out_c * in_c) / W^2, where W is the total weight,
+	 * W_c the weight of the edges inside c, and out_c and in_c the total weight of the edges
+	 * leaving and entering the vertices of c.
+	 * @param graph The graph that was partitioned
+	 * @param partition A partition of its vertices
+	 * @return The modularity, between -1 and 1, or 0 if the graph has no edge weight
+	 */
+	public static <V> double modularity(GraphIfc<V> graph, Components<V> partition) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int n = csr.numVertices();
+		double[] inside = new double[partition.count()];
+		double[] out = new double[partition.count()];
+		double[] in = new double[partition.count()];
+		double total = 0;
+		for (int u = 0; u < n; u++) {
+			int c = partition.componentAt(u);
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				double w = csr.weightAt(k);
+				int d = partition.componentAt(csr.targets[k]);
+				total += w;
+				out[c] += w;
+				in[d] += w;
+				if (c == d) {
+					inside[c] += w;
+				}
+			}
+		}
+		if (total == 0) {
+			return 0;
+		}
+		double q = 0;
+		for (int c = 0; c < inside.length; c++) {
+			q += inside[c] / total - out[c] * in[c] / (total * total);
+		}
+		return q;
+	}
+
+	/**
+	 * Returns the communities as a partition of the vertices, with their sizes
+	 * @return The partition, numbered in order of each community's first vertex
+	 */
+	public Components<V> getPartition() {
+		return partition;
+	}
+
+	/**
+	 * Returns the modularity of the communities
+	 * @return The modularity
+	 */
+	public double getModularity() {
+		return modularity;
+	}
+
+	/**
+	 * Returns the number of rounds of label propagation run
+	 * @return The number of rounds
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+
+	/**
+	 * Main method for unit testing. Finds communities on seeded random weighted digraphs made
+	 * of a few dense groups, and checks that the partition covers every vertex, numbered in
+	 * order of first vertex, that the modularity matches the sum over all pairs of vertices
+	 * (A_uv - out_u * in_v / W) / W for u and v in the same part, and that on a pool of one
+	 * thread two runs with the same seed give the same partition.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(21);
+		ForkJoinPool single = new ForkJoinPool(1);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		int graphs = 200;
+		int matched = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			int n = 1 + random.nextInt(80);
+			int groups = 1 + random.nextInt(5);
+			CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>();
+			for (int v = 0; v < n; v++) {
+				builder.addVertex(v);
+			}
+			int m = random.nextInt(5 * n + 1);
+			for (int e = 0; e < m; e++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(5) == 0 ? random.nextInt(n) //most edges stay inside a group
+						: Math.min(n - 1, u - u % groups + random.nextInt(groups));
+				builder.addEdge(u, v, 1 - random.nextFloat());
+			}
+			CSRGraph<Integer> graph = builder.build();
+			Schedule schedule = Schedule.values()[trial % 2];
+			long seed = random.nextLong();
+			boolean ok = true;
+			for (ForkJoinPool threads : new ForkJoinPool[] { single, pool }) {
+				Communities<Integer> communities = detect(graph, threads, schedule, seed);
+				Components<Integer> partition = communities.getPartition();
+				int next = 0; //the next community to appear, in order of first vertex
+				int covered = 0;
+				for (int v = 0; v < n; v++) {
+					int c = partition.componentOf(v);
+					ok &= c >= 0 && c <= next;
+					next = Math.max(next, c + 1);
+				}
+				ok &= next == partition.count();
+				for (int c = 0; c < partition.count(); c++) {
+					ok &= partition.size(c) > 0;
+					covered += partition.size(c);
+				}
+				ok &= covered == n;
+
+				double[] out = new double[n];
+				double[] in = new double[n];
+				double total = 0;
+				for (int u = 0; u < n; u++) {
+					for (int v : graph.getNeighbors(u)) {
+						out[u] += graph.getWeight(u, v);
+						in[v] += graph.getWeight(u, v);
+						total += graph.getWeight(u, v);
+					}
+				}
+				double q = 0;
+				for (int u = 0; u < n && total > 0; u++) {
+					for (int v = 0; v < n; v++) {
+						if (partition.sameComponent(u, v)) {
+							double a = graph.edgeExists(u, v) ? graph.getWeight(u, v) : 0;
+							q += (a - out[u] * in[v] / total) / total;
+						}
+					}
+				}
+				ok &= Math.abs(communities.getModularity() - q) < 1e-9;
+				ok &= Math.abs(modularity(graph, partition) - q) < 1e-9;
+			}
+			Components<Integer> first = detect(graph, single, schedule, seed).getPartition();
+			Components<Integer> second = detect(graph, single, schedule, seed).getPartition();
+			for (int v = 0; v < n; v++) {
+				ok &= first.componentOf(v) == second.componentOf(v);
+			}
+			if (ok) {
+				matched++;
+			}
+		}
+		single.shutdown();
+		pool.shutdown();
+		System.out.println("Communities passed on " + matched + " of " + graphs + " graphs");
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	/**
+	 * Returns the order in which each round visits the vertices
+	 */
+	private static int[] schedule(CSRGraph<?> csr, CSRGraph<?> reverse, Schedule schedule, long seed) {
+		int n = csr.numVertices();
+		int[] order = new int[n];
+		if (schedule == Schedule.DEGREE) { //counting sort by decreasing total degree
+			int maxDegree = 0;
+			for (int v = 0; v < n; v++) {
+				maxDegree = Math.max(maxDegree, csr.degreeAt(v) + reverse.degreeAt(v));
+			}
+			int[] start = new int[maxDegree + 2];
+			for (int v = 0; v < n; v++) {
+				start[maxDegree - csr.degreeAt(v) - reverse.degreeAt(v) + 1]++;
+			}
+			for (int d = 0; d <= maxDegree; d++) {
+				start[d+1] += start[d];
+			}
+			for (int v = 0; v < n; v++) {
+				order[start[maxDegree - csr.degreeAt(v) - reverse.degreeAt(v)]++] = v;
+			}
+			return order;
+		}
+		Random random = new Random(seed);
+		for (int v = 0; v < n; v++) {
+			int j = random.nextInt(v + 1);
+			order[v] = order[j];
+			order[j] = v;
+		}
+		return order;
+	}
+
+	/*
+	 * The total edge weight of each label around one vertex. weight is 0 for every label
+	 * that is not in labels.
+	 */
+	private static class Tally {
+		double[] weight;
+		IntList labels = new IntList();
+
+		Tally(int n) {
+			weight = new double[n];
+		}
+
+		/**
+		 * Adds the weights of the out-edges of v in the given graph to the labels at their ends
+		 */
+		void add(CSRGraph<?> graph, int v, int[] label) {
+			for (int k = graph.offsets[v]; k < graph.offsets[v+1]; k++) {
+				int l = label[graph.targets[k]];
+				if (weight[l] == 0) {
+					labels.add(l);
+				}
+				weight[l] += graph.weightAt(k);
+			}
+		}
+
+		/**
+		 * Returns the label of largest weight, or current if it is among them, and clears the tally
+		 */
+		int best(int current, int salt) {
+			int best = current;
+			double bestWeight = weight[current];
+			for (int i = 0; i < labels.size(); i++) {
+				int l = labels.get(i);
+				if (weight[l] > bestWeight || (weight[l] == bestWeight && l != best && best != current
+						&& hash(l, salt) < hash(best, salt))) {
+					best = l;
+					bestWeight = weight[l];
+				}
+			}
+			for (int i = 0; i < labels.size(); i++) {
+				weight[labels.get(i)] = 0;
+			}
+			labels.clear();
+			return best;
+		}
+
+		private static int hash(int label, int salt) {
+			int h = (label ^ salt) * 0x9E3779B1;
+			return h ^ (h >>> 16);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package graph;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A partition of the vertices of a graph into components, each with an id in
+ * 0...count()-1. The component of every vertex is kept in an int array indexed by its
+ * dense id, so testing whether two vertices share a component is two array lookups.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class Components<V> {
+
+	private CSRGraph<V> graph;
+	private int[] component;
+	private int[] sizes;
+
+	/**
+	 * Wraps the component ids of a finished computation
+	 * @param graph The graph that was partitioned
+	 * @param component component[v] is the id of the component of vertex v
+	 * @param count The number of components
+	 */
+	Components(CSRGraph<V> graph, int[] component, int count) {
+		this.graph = graph;
+		this.component = component;
+		sizes = new int[count];
+		for (int c : component) {
+			sizes[c]++;
+		}
+	}
+
+	/**
+	 * Returns the number of components
+	 * @return The number of components
+	 */
+	public int count() {
+		return sizes.length;
+	}
+
+	/**
+	 * Returns the component of a vertex
+	 * @param v A vertex in the graph
+	 * @return The id of the component of v
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int componentOf(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return component[u];
+	}
+
+	/**
+	 * Determines whether two vertices lie in the same component
+	 * @param u A vertex in the graph
+	 * @param v A vertex in the graph
+	 * @return True if u and v share a component
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public boolean sameComponent(V u, V v) {
+		return componentOf(u) == componentOf(v);
+	}
+
+	/**
+	 * Returns the number of vertices in a component
+	 * @param c A component id in 0...count()-1
+	 * @return The size of the component
+	 */
+	public int size(int c) {
+		return sizes[c];
+	}
+
+	/**
+	 * Returns the size of the largest component
+	 * @return The largest size, or 0 if the graph has no vertices
+	 */
+	public int largest() {
+		int largest = 0;
+		for (int size : sizes) {
+			largest = Math.max(largest, size);
+		}
+		return largest;
+	}
+
+	/**
+	 * Returns how many components there are of each size
+	 * @return A map from component size to the number of components of that size, largest size first
+	 */
+	public Map<Integer, Integer> sizeDistribution() {
+		Map<Integer, Integer> distribution = new TreeMap<Integer, Integer>((a, b) -> Integer.compare(b, a));
+		for (int size : sizes) {
+			distribution.merge(size, 1, Integer::sum);
+		}
+		return distribution;
+	}
+
+	/**
+	 * Returns the component of the vertex with a dense id
+	 */
+	int componentAt(int u) {
+		return component[u];
+	}
+}
@@ -0,0 +1,424 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.IntList;
+import util.Parallel;
+
+/**
+ * Answers distance queries on an unweighted graph from precomputed distances to and from a
+ * few landmark vertices. For a landmark L and vertices u, v the triangle inequality gives
+ * <ul>
+ * <li> d(u, v) >= d(L, v) - d(L, u) and d(u, v) >= d(u, L) - d(v, L) </li>
+ * <li> d(u, v) <= d(u, L) + d(L, v) </li>
+ * </ul>
+ * and if L reaches u but not v, or v reaches L but u does not, then u cannot reach v at all.
+ * The lower bounds also guide shortestPath, an A* search (ALT) that visits far fewer
+ * vertices than a breadth-first search.
+ *
+ * The distances are stored vertex by vertex in a byte[] when every finite distance is below
+ * 255 and in a short[] otherwise, so the oracle of a graph with V vertices and k landmarks
+ * takes about 2kV bytes.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class DistanceOracle<V> {
+
+	/**
+	 * How the landmarks are chosen
+	 */
+	public enum Selection {
+		/** The vertices with the most in- and out-edges */
+		DEGREE,
+		/** Each landmark is the vertex farthest from the ones already chosen, starting from the vertex with the most edges */
+		FARTHEST_FIRST
+	}
+
+	private CSRGraph<V> graph;
+	private int[] landmarks;
+	private int k;
+	private int unreachable; //the stored value for "no path"
+	// Distances from (forward) and to (backward) landmark l of vertex v, at index v*k + l; one pair is non-null
+	private byte[] forwardBytes;
+	private byte[] backwardBytes;
+	private short[] forwardShorts;
+	private short[] backwardShorts;
+
+	private DistanceOracle(CSRGraph<V> graph, int[] landmarks) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.k = landmarks.length;
+	}
+
+	/**
+	 * Chooses landmarks and computes the distances to and from each of them
+	 * @param graph The graph to be queried
+	 * @param numLandmarks The number of landmarks, at most the number of vertices
+	 * @param selection How the landmarks are chosen
+	 * @param pool The pool the searches run on
+	 * @return The oracle
+	 * @throws IllegalArgumentException if the graph has a shortest path too long to store in a short
+	 */
+	public static <V> DistanceOracle<V> build(GraphIfc<V> graph, int numLandmarks, Selection selection, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		CSRGraph<V> reverse = csr.transpose();
+		int n = csr.numVertices();
+		numLandmarks = Math.max(0, Math.min(numLandmarks, n));
+		int[] landmarks;
+		int[][] forward = new int[numLandmarks][];
+		int[][] backward = new int[numLandmarks][];
+		if (selection == Selection.DEGREE) {
+			landmarks = byDegree(csr, numLandmarks);
+			Parallel.forRange(pool, 0, 2*numLandmarks, 1, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					if (i % 2 == 0) {
+						forward[i/2] = distances(csr, landmarks[i/2]);
+					} else {
+						backward[i/2] = distances(reverse, landmarks[i/2]);
+					}
+				}
+			});
+		} else {
+			landmarks = farthestFirst(csr, reverse, numLandmarks, forward, backward);
+		}
+
+		int longest = 0;
+		for (int l = 0; l < numLandmarks; l++) {
+			for (int v = 0; v < n; v++) {
+				longest = Math.max(longest, Math.max(forward[l][v], backward[l][v]));
+			}
+		}
+		DistanceOracle<V> oracle = new DistanceOracle<V>(csr, landmarks);
+		int k = numLandmarks;
+		if (longest < 0xFF) {
+			oracle.unreachable = 0xFF;
+			oracle.forwardBytes = new byte[n*k];
+			oracle.backwardBytes = new byte[n*k];
+		} else if (longest < 0xFFFF) {
+			oracle.unreachable = 0xFFFF;
+			oracle.forwardShorts = new short[n*k];
+			oracle.backwardShorts = new short[n*k];
+		} else {
+			throw new IllegalArgumentException("Shortest paths of length " + longest + " do not fit in a short");
+		}
+		for (int l = 0; l < k; l++) {
+			for (int v = 0; v < n; v++) {
+				int f = forward[l][v] == -1 ? oracle.unreachable : forward[l][v];
+				int b = backward[l][v] == -1 ? oracle.unreachable : backward[l][v];
+				if (oracle.forwardBytes != null) {
+					oracle.forwardBytes[v*k + l] = (byte)f;
+					oracle.backwardBytes[v*k + l] = (byte)b;
+				} else {
+					oracle.forwardShorts[v*k + l] = (short)f;
+					oracle.backwardShorts[v*k + l] = (short)b;
+				}
+			}
+		}
+		return oracle;
+	}
+
+	/**
+	 * Returns the landmarks
+	 * @return The landmarks in the order they were chosen
+	 */
+	public List<V> getLandmarks() {
+		List<V> list = new ArrayList<V>();
+		for (int l : landmarks) {
+			list.add(graph.vertexAt(l));
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Returns a length no path from u to v is shorter than
+	 * @param u The start vertex
+	 * @param v The end vertex
+	 * @return The lower bound, or Integer.MAX_VALUE if the landmarks prove v cannot be reached from u
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public int lowerBound(V u, V v) {
+		return lowerBound(indexOf(u), indexOf(v));
+	}
+
+	/**
+	 * Returns the length of some path from u to v through a landmark
+	 * @param u The start vertex
+	 * @param v The end vertex
+	 * @return The upper bound, or Integer.MAX_VALUE if no landmark lies on a path from u to v
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public int upperBound(V u, V v) {
+		int s = indexOf(u);
+		int t = indexOf(v);
+		if (s == t) {
+			return 0;
+		}
+		int best = Integer.MAX_VALUE;
+		for (int l = 0; l < k; l++) {
+			int toLandmark = backward(s, l);
+			int fromLandmark = forward(t, l);
+			if (toLandmark != unreachable && fromLandmark != unreachable) {
+				best = Math.min(best, toLandmark + fromLandmark);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a shortest path with an A* search whose estimate of the distance left is the
+	 * landmark lower bound. Vertices the landmarks prove cannot reach the target are never
+	 * entered.
+	 * @param source The start vertex
+	 * @param target The end vertex
+	 * @return The vertices of a shortest path from source to target inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public List<V> shortestPath(V source, V target) {
+		int s = indexOf(source);
+		int t = indexOf(target);
+		List<V> path = new ArrayList<V>();
+		int h = lowerBound(s, t);
+		if (h == Integer.MAX_VALUE) {
+			return path;
+		}
+		int n = graph.numVertices();
+		int[] dist = new int[n];
+		int[] parent = new int[n];
+		int[] estimate = new int[n]; //lower bound on the distance left, computed when a vertex is first reached
+		Arrays.fill(dist, -1); //-1 not reached yet, -2 proven unable to reach the target
+		// The lower bounds are consistent, so the estimate of a popped vertex never decreases
+		// and the open vertices can be kept in one list per estimate
+		List<IntList> open = new ArrayList<IntList>();
+		dist[s] = 0;
+		parent[s] = -1;
+		estimate[s] = h;
+		addOpen(open, h, s);
+		boolean found = false;
+		for (int f = h; f < open.size() && !found; f++) {
+			IntList bucket = open.get(f);
+			for (int i = 0; i < bucket.size() && !found; i++) { //the bucket can grow while it is scanned
+				int u = bucket.get(i);
+				if (u == t) {
+					found = true;
+				} else if (dist[u] + estimate[u] == f) { //skip entries made stale by a shorter path
+					for (int e = graph.offsets[u]; e < graph.offsets[u+1]; e++) {
+						int w = graph.targets[e];
+						if (dist[w] == -1) {
+							estimate[w] = lowerBound(w, t);
+							if (estimate[w] == Integer.MAX_VALUE) {
+								dist[w] = -2; //w cannot reach the target, never enter it
+							}
+						}
+						if (dist[w] == -1 || dist[u] + 1 < dist[w]) {
+							dist[w] = dist[u] + 1;
+							parent[w] = u;
+							addOpen(open, dist[w] + estimate[w], w);
+						}
+					}
+				}
+			}
+		}
+		if (found) {
+			for (int v = t; v != -1; v = parent[v]) {
+				path.add(graph.vertexAt(v));
+			}
+			Collections.reverse(path);
+		}
+		return path;
+	}
+
+
+	/**
+	 * Main method for unit testing. Checks the bounds and the A* search against a plain
+	 * breadth-first search on seeded random digraphs, with both ways of choosing
+	 * landmarks. Every tenth graph is a long chain, so that its distances are stored in a
+	 * short[] rather than a byte[].
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(15);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		int graphs = 400;
+		int passed = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>();
+			int n = trial % 10 == 0 ? 300 + random.nextInt(300) : 1 + random.nextInt(100);
+			for (int v = 0; v < n; v++) {
+				builder.addVertex(v);
+			}
+			if (trial % 10 == 0) {
+				for (int v = 0; v + 1 < n; v++) {
+					builder.addEdge(v, v + 1);
+				}
+			} else {
+				int m = random.nextInt(3 * n + 1);
+				for (int e = 0; e < m; e++) {
+					builder.addEdge(random.nextInt(n), random.nextInt(n));
+				}
+			}
+			CSRGraph<Integer> graph = builder.build();
+			Selection selection = trial % 2 == 0 ? Selection.DEGREE : Selection.FARTHEST_FIRST;
+			DistanceOracle<Integer> oracle = build(graph, 1 + random.nextInt(8), selection, pool);
+			int[] dist = new int[n];
+			int[] queue = new int[n];
+			boolean ok = true;
+			for (int q = 0; q < 20; q++) {
+				int s = random.nextInt(n);
+				int t = random.nextInt(n);
+				Arrays.fill(dist, -1);
+				PathStatistics.bfs(graph, s, dist, queue);
+				int lower = oracle.lowerBound(s, t);
+				int upper = oracle.upperBound(s, t);
+				List<Integer> path = oracle.shortestPath(s, t);
+				if (dist[t] == -1) {
+					ok &= upper == Integer.MAX_VALUE && path.isEmpty();
+				} else {
+					ok &= lower <= dist[t] && dist[t] <= upper && path.size() == dist[t] + 1
+							&& path.get(0) == s && path.get(dist[t]) == t;
+					for (int i = 0; i < dist[t]; i++) {
+						ok &= graph.edgeExists(path.get(i), path.get(i + 1));
+					}
+				}
+			}
+			if (ok) {
+				passed++;
+			}
+		}
+		pool.shutdown();
+		System.out.println("Bounds and shortestPath matched BFS on " + passed + " of " + graphs + " graphs");
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	private int indexOf(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return u;
+	}
+
+	private int forward(int v, int l) {
+		return forwardBytes != null ? forwardBytes[v*k + l] & 0xFF : forwardShorts[v*k + l] & 0xFFFF;
+	}
+
+	private int backward(int v, int l) {
+		return backwardBytes != null ? backwardBytes[v*k + l] & 0xFF : backwardShorts[v*k + l] & 0xFFFF;
+	}
+
+	/**
+	 * The largest landmark lower bound on d(u, v), Integer.MAX_VALUE if there is provably no path
+	 */
+	private int lowerBound(int u, int v) {
+		int best = 0;
+		for (int l = 0; l < k; l++) {
+			int fu = forward(u, l);
+			int fv = forward(v, l);
+			if (fu != unreachable) {
+				if (fv == unreachable) {
+					return Integer.MAX_VALUE; //L reaches u, so it would reach v through u
+				}
+				best = Math.max(best, fv - fu);
+			}
+			int bu = backward(u, l);
+			int bv = backward(v, l);
+			if (bv != unreachable) {
+				if (bu == unreachable) {
+					return Integer.MAX_VALUE; //v reaches L, so u would reach L through v
+				}
+				best = Math.max(best, bu - bv);
+			}
+		}
+		return best;
+	}
+
+	private static void addOpen(List<IntList> open, int f, int v) {
+		while (open.size() <= f) {
+			open.add(new IntList());
+		}
+		open.get(f).add(v);
+	}
+
+	/**
+	 * Breadth-first distances from s, -1 for unreachable vertices. The search switches to
+	 * bottom-up levels on dense graphs such as the agreement graphs, see
+	 * GraphAlgorithms.directionOptimizingBFS.
+	 */
+	private static int[] distances(CSRGraph<?> csr, int s) {
+		return GraphAlgorithms.directionOptimizingBFS(csr, s);
+	}
+
+	private static int totalDegree(CSRGraph<?> csr, int u) {
+		return csr.degreeAt(u) + csr.transpose().degreeAt(u);
+	}
+
+	/**
+	 * The vertices with the most edges, ties broken by id
+	 */
+	private static int[] byDegree(CSRGraph<?> csr, int k) {
+		Integer[] order = new Integer[csr.numVertices()];
+		for (int u = 0; u < order.length; u++) {
+			order[u] = u;
+		}
+		Arrays.sort(order, (a, b) -> totalDegree(csr, a) != totalDegree(csr, b)
+				? totalDegree(csr, b) - totalDegree(csr, a) : a - b);
+		int[] landmarks = new int[k];
+		for (int l = 0; l < k; l++) {
+			landmarks[l] = order[l];
+		}
+		return landmarks;
+	}
+
+	/**
+	 * Chooses landmarks one at a time, each maximizing its smallest distance from the earlier
+	 * ones, and fills in their distances. Vertices no earlier landmark reaches count as
+	 * infinitely far, and vertices without edges are only chosen once no other is left.
+	 */
+	private static int[] farthestFirst(CSRGraph<?> csr, CSRGraph<?> reverse, int k, int[][] forward, int[][] backward) {
+		int n = csr.numVertices();
+		int[] landmarks = new int[k];
+		int[] nearest = new int[n]; //smallest distance from a chosen landmark, MAX_VALUE if none reaches it
+		Arrays.fill(nearest, Integer.MAX_VALUE);
+		boolean[] chosen = new boolean[n];
+		for (int l = 0; l < k; l++) {
+			int next = -1;
+			for (int u = 0; u < n; u++) {
+				if (!chosen[u] && (next == -1 || isFarther(csr, u, next, nearest))) {
+					next = u;
+				}
+			}
+			landmarks[l] = next;
+			chosen[next] = true;
+			forward[l] = distances(csr, next);
+			backward[l] = distances(reverse, next);
+			for (int u = 0; u < n; u++) {
+				if (forward[l][u] != -1) {
+					nearest[u] = Math.min(nearest[u], forward[l][u]);
+				}
+			}
+		}
+		return landmarks;
+	}
+
+	/**
+	 * Returns true if u is a better next landmark than v
+	 */
+	private static boolean isFarther(CSRGraph<?> csr, int u, int v, int[] nearest) {
+		boolean uHasEdges = totalDegree(csr, u) > 0;
+		boolean vHasEdges = totalDegree(csr, v) > 0;
+		if (uHasEdges != vHasEdges) {
+			return uHasEdges;
+		}
+		if (nearest[u] != nearest[v]) {
+			return nearest[u] > nearest[v];
+		}
+		return totalDegree(csr, u) > totalDegree(csr, v);
+	}
+}
@@ -2,9 +2,19 @@ package graph;
 
 import java.util.*;
 
+import util.FloatList;
+import util.IntHashSet;
+import util.IntList;
+
 /**
  * A directed graph class implemented using an adjacency list
- * The list is constructed from a HashMap of ArrayLists
+ * Every vertex gets a dense int id when it is added, and each adjacency list
+ * stores the ids of the out-neighbors in the order the edges were added.
+ * Vertices with many neighbors also keep a hash set of their neighbor ids,
+ * so adding an edge and testing for one take constant time. Each vertex also
+ * lists the ids of its in-neighbors, so traversals can follow edges backwards.
+ * Edges may carry float weights, stored in lists parallel to the adjacency lists;
+ * an edge added without a weight has weight 1.
  * Nodes can be of any generic type
  *
  *  @author Adam Braude and Eli Corpron
@@ -14,15 +24,33 @@ import java.util.*;
 
 public class Graph<V> implements GraphIfc<V> {
   
-  //Abstract Map, List as suggested in the assigment, 
-  //but I suspect that some operations could be improved by replacing the Lists with HashSets.
-  Map<V, List<V>> adjacencyList;
+  //Below this degree a linear scan of the adjacency list beats hashing
+  private static final int SET_THRESHOLD = 16;
+  
+  Map<V, Integer> ids;
+  List<V> vertices;
+  List<IntList> adjacencyList;
+  //In-neighbor ids of each vertex, in the order the edges were added; CSRGraph.of builds the transpose from them
+  List<IntList> inAdjacencyList;
+  //Neighbor sets of vertices whose degree passed SET_THRESHOLD, null for the others
+  List<IntHashSet> adjacencySets;
+  //Weight of each out-edge, parallel to adjacencyList; null until an edge is added with a weight
+  List<FloatList> weightList;
+  int edgeCount;
+  //Frozen copy handed out by CSRGraph.of, dropped whenever the graph changes
+  CSRGraph<V> frozen;
   
   /**
    *Constructor that creates a new empty graph of Vs
    */
   public Graph(){
-    adjacencyList = new HashMap<V, List<V>>();
+    ids = new LinkedHashMap<V, Integer>();
+    vertices = new ArrayList<V>();
+    adjacencyList = new ArrayList<IntList>();
+    inAdjacencyList = new ArrayList<IntList>();
+    adjacencySets = new ArrayList<IntHashSet>();
+    weightList = null;
+    edgeCount = 0;
   }
   
   /**
@@ -30,7 +58,7 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @return The number of vertices in the graph
 	 */
 	public int numVertices(){
-    return adjacencyList.size();
+    return vertices.size();
   }  
 		
 	/**
@@ -38,18 +66,21 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @return The number of edges in the graph
 	 */
 	public int numEdges(){
-    int out = 0;
-    for(List<V> list : adjacencyList.values()){
-        out+=list.size();
-    }
-    return out;
+    return edgeCount;
   }
 	
 	/**
 	 * Removes all vertices from the graph
 	 */
 	public void clear(){
+    ids.clear();
+    vertices.clear();
     adjacencyList.clear();
+    inAdjacencyList.clear();
+    adjacencySets.clear();
+    weightList = null;
+    edgeCount = 0;
+    frozen = null;
   }
 		
 	/** 
@@ -60,7 +91,15 @@ public class Graph<V> implements GraphIfc<V> {
     if (containsNode(v)){
       return;
     }
-    adjacencyList.put(v, new ArrayList<V>());
+    ids.put(v, vertices.size());
+    vertices.add(v);
+    adjacencyList.add(new IntList(4));
+    inAdjacencyList.add(new IntList(4));
+    adjacencySets.add(null);
+    if (weightList != null){
+      weightList.add(new FloatList(4));
+    }
+    frozen = null;
   }
 	
 	/**
@@ -70,22 +109,78 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @throws IllegalArgumentException if either vertex does not occur in the graph.
 	 */
 	public void addEdge(V u, V v){
-    if (!containsNode(u) || !containsNode(v)){
+    Integer from = ids.get(u);
+    Integer to = ids.get(v);
+    if (from == null || to == null){
+      throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+    }
+    insertEdge(from, to, 1f);
+  }
+
+	/**
+	 * Adds an edge between vertices u and v with a weight. This method has no effect if
+	 * the edge already exists, and the edge keeps its first weight.
+	 * @param u A vertex in the graph
+	 * @param v A vertex in the graph
+	 * @param weight The weight of the edge
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph.
+	 */
+	public void addEdge(V u, V v, float weight){
+    Integer from = ids.get(u);
+    Integer to = ids.get(v);
+    if (from == null || to == null){
       throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
-    } else {
-      List<V> list = adjacencyList.get(u);
-      if (!list.contains(v)){
-        list.add(v);
+    }
+    if (weightList == null){ //the edges so far had no weight, so they get weight 1
+      weightList = new ArrayList<FloatList>(vertices.size());
+      for (IntList list : adjacencyList){
+        FloatList weights = new FloatList(Math.max(4, list.size()));
+        for (int i = 0; i < list.size(); i++){
+          weights.add(1f);
+        }
+        weightList.add(weights);
       }
+      frozen = null;
     }
+    insertEdge(from, to, weight);
   }
 
 	/**
-	 * Returns the set of all vertices in the graph.
-	 * @return A set containing all vertices in the graph
+	 * Determines whether the graph stores edge weights
+	 * @return True if an edge was added with a weight
+	 */
+	public boolean isWeighted(){
+    return weightList != null;
+  }
+
+	/**
+	 * Returns the weight of the edge from v to u. Edges added without a weight have weight 1.
+	 * @param v A node in the graph
+	 * @param u A node in the graph
+	 * @return The weight of the edge
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph, or there is no such edge
+	 */
+	public float getWeight(V v, V u){
+    Integer from = ids.get(v);
+    Integer to = ids.get(u);
+    if (from == null || to == null){
+      throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
+    }
+    IntList list = adjacencyList.get(from);
+    for (int i = 0; i < list.size(); i++){
+      if (list.get(i) == to){
+        return weightList == null ? 1f : weightList.get(from).get(i);
+      }
+    }
+    throw new IllegalArgumentException("There is no edge from " + v + " to " + u);
+  }
+
+	/**
+	 * Returns the set of all vertices in the graph, in the order they were added.
+	 * @return A read-only set containing all vertices in the graph
 	 */
 	public Set<V> getVertices(){
-    return adjacencyList.keySet();
+    return Collections.unmodifiableSet(ids.keySet());
   }
 	
 	/**
@@ -94,10 +189,70 @@ public class Graph<V> implements GraphIfc<V> {
 	 * edge (v, u) exists.
 	 *  
 	 * @param v An existing node in the graph
-	 * @return All neighbors of v in the graph.			
+	 * @return All neighbors of v in the graph, as a read-only list in the order the edges were added, or null if v is not in the graph
 	 */
 	public List<V> getNeighbors(V v){
-    return adjacencyList.get(v);
+    Integer id = ids.get(v);
+    if (id == null){
+      return null;
+    }
+    IntList list = adjacencyList.get(id);
+    return new AbstractList<V>() {
+      @Override
+      public V get(int i) {
+        if (i < 0 || i >= list.size()) {
+          throw new IndexOutOfBoundsException("Index: " + i);
+        }
+        return vertices.get(list.get(i));
+      }
+
+      @Override
+      public int size() {
+        return list.size();
+      }
+    };
+  }
+
+	/**
+	 * Returns the in-neighbors of v in the graph, the vertices u for which an edge (u, v) exists.
+	 *  
+	 * @param v An existing node in the graph
+	 * @return All in-neighbors of v in the graph, as a read-only list in the order the edges were added, or null if v is not in the graph
+	 */
+	public List<V> getInNeighbors(V v){
+    Integer id = ids.get(v);
+    if (id == null){
+      return null;
+    }
+    IntList list = inAdjacencyList.get(id);
+    return new AbstractList<V>() {
+      @Override
+      public V get(int i) {
+        if (i < 0 || i >= list.size()) {
+          throw new IndexOutOfBoundsException("Index: " + i);
+        }
+        return vertices.get(list.get(i));
+      }
+
+      @Override
+      public int size() {
+        return list.size();
+      }
+    };
+  }
+
+	/**
+	 * Returns the indegree of the vertex.
+	 * @param v A vertex in the graph
+	 * @return The number of edges that end at v
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int inDegree(V v){
+    Integer id = ids.get(v);
+    if (id == null){
+      throw new IllegalArgumentException("Cannot find degree of vertex " + v + " not in graph.");
+    }
+    return inAdjacencyList.get(id).size();
   }
 
 	/**
@@ -109,7 +264,7 @@ public class Graph<V> implements GraphIfc<V> {
 	 */
 	public boolean containsNode(V v){
     //We can use this because containsKey checks for .equals() equality
-    if (adjacencyList.containsKey(v)){
+    if (ids.containsKey(v)){
       return true;
     }
     return false;
@@ -124,10 +279,12 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @throws IllegalArgumentException if either vertex does not occur in the graph
 	 */
 	public boolean edgeExists(V v, V u){
-    if (!containsNode(u) || !containsNode(v)){
+    Integer from = ids.get(v);
+    Integer to = ids.get(u);
+    if (from == null || to == null){
       throw new IllegalArgumentException("At least one vertex did not appear in the graph!");
     }
-    return adjacencyList.get(v).contains(u);
+    return hasEdge(from, to);
   }
 
 	/**
@@ -138,10 +295,11 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @throws IllegalArgumentException if the vertex does not occur in the graph
 	 */
 	public int degree(V v){
-    if (!containsNode(v)){
+    Integer id = ids.get(v);
+    if (id == null){
       throw new IllegalArgumentException("Cannot find degree of vertex " + v + " not in graph.");
     }
-    return adjacencyList.get(v).size();
+    return adjacencyList.get(id).size();
   }
 	
 	/**
@@ -150,7 +308,58 @@ public class Graph<V> implements GraphIfc<V> {
 	 * @return A string representation of the graph
 	 */
 	public String toString(){
-    return adjacencyList.toString();
+    StringBuilder str = new StringBuilder("{");
+    for (int id = 0; id < vertices.size(); id++){
+      if (id > 0){
+        str.append(", ");
+      }
+      str.append(vertices.get(id)).append("=").append(getNeighbors(vertices.get(id)));
+    }
+    return str.append("}").toString();
+  }
+  
+  /**
+   *Adds the edge (from, to) between two dense ids unless it already exists
+   */
+  private void insertEdge(int from, int to, float weight){
+    if (hasEdge(from, to)){
+      return;
+    }
+    IntList list = adjacencyList.get(from);
+    list.add(to);
+    if (weightList != null){
+      weightList.get(from).add(weight);
+    }
+    inAdjacencyList.get(to).add(from);
+    edgeCount++;
+    frozen = null;
+    IntHashSet set = adjacencySets.get(from);
+    if (set != null){
+      set.add(to);
+    } else if (list.size() > SET_THRESHOLD){
+      set = new IntHashSet(2*list.size());
+      for (int i = 0; i < list.size(); i++){
+        set.add(list.get(i));
+      }
+      adjacencySets.set(from, set);
+    }
+  }
+  
+  /**
+   *Checks for the edge (from, to) between two dense ids
+   */
+  private boolean hasEdge(int from, int to){
+    IntHashSet set = adjacencySets.get(from);
+    if (set != null){
+      return set.contains(to);
+    }
+    IntList list = adjacencyList.get(from);
+    for (int i = 0; i < list.size(); i++){
+      if (list.get(i) == to){
+        return true;
+      }
+    }
+    return false;
   }
   
   /**
@@ -175,8 +384,14 @@ public class Graph<V> implements GraphIfc<V> {
     System.out.println("This is " + graph.degree(1) + " neighbors");
     System.out.println("Neighbors of 15 are: " + graph.getNeighbors(15));
     System.out.println("This is " + graph.degree(15) + " neighbors");
+    System.out.println("In-neighbors of 13 are: " + graph.getInNeighbors(13));
+    System.out.println("This is " + graph.inDegree(13) + " in-neighbors");
     System.out.println("Is there an edge between 1 and 13?: " + graph.edgeExists(1, 13));
     System.out.println("Is there an edge between 1 and 5?: " + graph.edgeExists(1, 5));
+    System.out.println("Is the graph weighted? " + graph.isWeighted());
+    graph.addEdge(13, 1, 0.5f);
+    System.out.println("Added edge 13 -> 1 with weight 0.5, is the graph weighted? " + graph.isWeighted());
+    System.out.println("Weight of 13 -> 1: " + graph.getWeight(13, 1) + ", weight of 1 -> 13: " + graph.getWeight(1, 13));
     try {
       System.out.println("Is there an edge between 1 and 13?: " + graph.edgeExists(1, 19)); 
     }
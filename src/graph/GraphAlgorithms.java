@@ -1,7 +1,17 @@
 package graph;
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import data.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleUnaryOperator;
+import util.Parallel;
+import util.BucketQueue;
+import util.IndexedHeap;
+import util.IntList;
+import util.IntPriorityQueue;
 
 /*
  * This Class has methods for finding shortest paths in Graphs
@@ -11,92 +21,1401 @@ import data.*;
  */
 public class GraphAlgorithms {
 	
+	// Side of the square tiles processed by floydWarshall; three 64x64 int tiles fit in L1/L2 cache
+	private static final int TILE = 64;
+	
+	// Direction-optimizing BFS switches to bottom-up once the frontier's out-edges exceed 1/ALPHA of the
+	// in-edges of the unvisited vertices, and back to top-down once the frontier holds under 1/BETA of the vertices
+	private static final int ALPHA = 14;
+	private static final int BETA = 24;
+	
+	// Largest number of entries in the distance matrix of floydWarshall, the largest array most JVMs allocate
+	private static final int MAX_MATRIX_SIZE = Integer.MAX_VALUE - 8;
+	
+	// Largest integer edge weight for which shortest path searches use a bucket queue instead of a heap
+	private static final int MAX_BUCKET_WEIGHT = 1024;
+	
+	// Delta-stepping keeps at most this many buckets, which bounds how small delta can be next to the largest edge cost
+	private static final int MAX_BUCKETS = 1 << 20;
+	
+	// Delta-stepping relaxes the edges of at least this many vertices per task
+	private static final int RELAX_GRAIN = 64;
+	
+	// Search state reused by the point-to-point searches of each thread, forward and backward
+	private static final ThreadLocal<Search[]> SEARCHES = ThreadLocal.withInitial(() -> new Search[] {
+		new Search(), new Search()
+	});
+	
 	/**
-     	* floydWarshall that takes a graph of Movies and returns a 2d array of shortest paths between pairs of nodes
-     	* @param graph The graph of Movies to be parsed
-     	* @return Returns a 2d array of ints that correpsonds to the shortest path between nodes.
+     	* floydWarshall that takes a graph and returns the shortest paths between all pairs of nodes.
+     	* Runs on the common ForkJoinPool.
+     	* @param graph The graph to be parsed
+     	* @return The distances and predecessors, indexed by the dense ids of the frozen graph
+     	* @throws IllegalArgumentException if the graph has too many vertices for a v*v int array
      	*/
-	public static int[][] floydWarshall(GraphIfc<Movie> graph){
-		int v = graph.numVertices();
-		int[][] paths = new int[v][v];
-		int[][] pathsPrev = new int[v][v];
+	public static <V> ShortestPathMatrix<V> floydWarshall(GraphIfc<V> graph){
+		return floydWarshall(graph, ForkJoinPool.commonPool());
+	}
+	
+	/**
+     	* floydWarshall that takes a graph and returns the shortest paths between all pairs of nodes.
+     	* The matrix is updated in place in square tiles. For each block of k, the diagonal tile is
+     	* finished first, then the tiles in its row and column, then all remaining tiles; the tiles
+     	* within the last two steps are independent and are processed in parallel on the pool.
+     	* @param graph The graph to be parsed
+     	* @param pool The pool the tiles are processed on
+     	* @return The distances and predecessors, indexed by the dense ids of the frozen graph
+     	* @throws IllegalArgumentException if the graph has too many vertices for a v*v int array
+     	*/
+	public static <V> ShortestPathMatrix<V> floydWarshall(GraphIfc<V> graph, ForkJoinPool pool){
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int v = csr.numVertices();
+		if ((long)v * v > MAX_MATRIX_SIZE) {
+			throw new IllegalArgumentException("Floyd-Warshall needs a " + v + " x " + v + " matrix, but at most "
+					+ (int)Math.sqrt(MAX_MATRIX_SIZE) + " vertices fit in an int array");
+		}
+		int[] dist = new int[v*v]; //flat row-major matrix, dist[i*v+j]
+		int[] pred = new int[v*v];
+		Arrays.fill(dist, v+1); //v+1 is longer than any path
+		Arrays.fill(pred, -1);
 		for (int i = 0; i < v; i++) {
-			Arrays.fill(pathsPrev[i], v+1);
+			dist[i*v + i] = 0;
+			pred[i*v + i] = i;
 		}
-		for (Movie movie : graph.getVertices()) {
-			for (Movie movie2 : graph.getNeighbors(movie)) {
-				pathsPrev[movie.getMovieId()-1][movie2.getMovieId()-1] = 1;
+		for (int u = 0; u < v; u++) {
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int j = csr.targets[k];
+				if (u != j) {
+					dist[u*v + j] = 1;
+					pred[u*v + j] = u;
+				}
 			}
 		}
-		for (int k = 1; k < v; k++) {
-			for (int i = 0; i < v; i++) {
-				for (int j = 0; j < v; j++) {
-					int option1 = pathsPrev[i][j];
-					int option2 = pathsPrev[i][k] + pathsPrev[k][j];
-					int b = Math.min(option1, option2);
-					paths[i][j] = b;
+		int tiles = (v + TILE - 1) / TILE;
+		for (int kb = 0; kb < tiles; kb++) {
+			final int k = kb;
+			relaxTile(dist, pred, v, k, k, k); //diagonal tile
+			Parallel.forRange(pool, 0, 2*tiles, 1, (from, to) -> { //its row and column
+				for (int t = from; t < to; t++) {
+					int b = t / 2;
+					if (b == k) {
+						continue;
+					}
+					if (t % 2 == 0) {
+						relaxTile(dist, pred, v, k, k, b);
+					} else {
+						relaxTile(dist, pred, v, k, b, k);
+					}
+				}
+			});
+			Parallel.forRange(pool, 0, tiles*tiles, 1, (from, to) -> { //everything else
+				for (int t = from; t < to; t++) {
+					int ib = t / tiles;
+					int jb = t % tiles;
+					if (ib != k && jb != k) {
+						relaxTile(dist, pred, v, k, ib, jb);
+					}
+				}
+			});
+		}
+		return new ShortestPathMatrix<V>(csr, dist, pred);
+	}
+	
+	/**
+	 * Relaxes the paths of tile (ib, jb) through every intermediate vertex of block kb
+	 */
+	private static void relaxTile(int[] dist, int[] pred, int v, int kb, int ib, int jb) {
+		int kEnd = Math.min(v, (kb+1)*TILE);
+		int iEnd = Math.min(v, (ib+1)*TILE);
+		int jStart = jb*TILE;
+		int jEnd = Math.min(v, (jb+1)*TILE);
+		for (int k = kb*TILE; k < kEnd; k++) {
+			int kRow = k*v;
+			for (int i = ib*TILE; i < iEnd; i++) {
+				int iRow = i*v;
+				int dik = dist[iRow + k];
+				if (dik > v) { //no path from i to k
+					continue;
+				}
+				for (int j = jStart; j < jEnd; j++) {
+					int through = dik + dist[kRow + j];
+					if (through < dist[iRow + j]) {
+						dist[iRow + j] = through;
+						pred[iRow + j] = pred[kRow + j];
+					}
 				}
 			}
-			pathsPrev = paths;
-			paths = new int[v][v];
 		}
-		return pathsPrev;
 	}
 	
 	/**
-     	* Dijjkstras that works on a graph of Movie objects and a Movie object for a starting node, then finds the shortest
-     	* path to every node in the graph. Returns this in an array of ints, where the index corresponds to the node, and
-     	* the int at the index is the preceding node.
+     	* Dijjkstras that works on a graph and a starting node, then finds the shortest path to every node in the graph.
+     	* The search runs on the dense ids of the frozen graph, and only the source and the result are translated.
+     	* Distances are sums of the stored edge weights, which are 1 on an unweighted graph.
      	* @param source The source node
      	* @param graph The graph to be parsed
-     	* @return Returns an array of ints, where the index is the node, and the int at the index is the previous node
+     	* @return The distance of every node from the source and the previous node on a shortest path to it
+     	* @throws IllegalArgumentException if the source does not occur in the graph, a weight is negative,
+     	*         or, with whole-number weights, a path is longer than Integer.MAX_VALUE - 1
     	*/
-	public static int[] Dijkstras(Movie source, GraphIfc<Movie> graph) { //works with any graph with edges of weight 1
-        PriorityQueue minprio = new PriorityQueue();
-        int[] dist = new int[graph.numVertices()];
-        int[] prev = new int[graph.numVertices()];
+	public static <V> ShortestPathTree<V> Dijkstras(V source, GraphIfc<V> graph) {
+		return Dijkstras(source, graph, true);
+	}
+
+	/**
+     	* Dijjkstras that finds the shortest path from a starting node to every node in the graph, either by edge
+     	* weight or by number of edges. The queue is only a matter of speed and is picked by newQueue: a bucket
+     	* queue when every cost is a small whole number, and otherwise a heap. Fractional distances are queued by
+     	* the bits of the nearest float, which order like the distances since none is negative; a node whose
+     	* distance still drops after it left the queue (two distances rounding to the same float) is queued
+     	* again, so the rounding never changes the answer.
+     	* @param source The source node
+     	* @param graph The graph to be parsed
+     	* @param weighted True to sum the edge weights, false to count every edge as 1
+     	* @return The distance of every node from the source and the previous node on a shortest path to it
+     	* @throws IllegalArgumentException if the source does not occur in the graph, a weight is negative,
+     	*         or, with whole-number costs, a path is longer than Integer.MAX_VALUE - 1
+    	*/
+	public static <V> ShortestPathTree<V> Dijkstras(V source, GraphIfc<V> graph, boolean weighted) {
+        CSRGraph<V> csr = CSRGraph.of(graph);
+        float[] weights = weighted ? csr.weights : null; //null when every edge costs 1
+        int maxWeight = weights == null ? 1 : maxIntegerWeight(csr);
+        boolean integral = maxWeight >= 0; //distances are whole numbers and are their own priorities
+        IntPriorityQueue minprio = newQueue(csr.numVertices(), maxWeight);
+        assert minprio.isMinFirst();
+        double[] dist = new double[csr.numVertices()];
+        int[] prev = new int[csr.numVertices()]; //indexed by dense vertex id
 
         for (int i = 0; i < prev.length; i++) { //initializes the prev with a list of unatainable nodes
             prev[i] = -1;
         }
 
         for (int i = 0; i < dist.length; i++) { //initiliazes the length with an unattainable length
-            dist[i] = graph.numVertices() + 1;
+            dist[i] = Double.POSITIVE_INFINITY;
         }
 
-        dist[source.getMovieId()-1] = 0; //source is null, and Movie index is 1-based
-        prev[source.getMovieId()-1] = 0; //source is null
-        minprio.push(0, source.getMovieId()); //Source node has priority 0 and, and is the 0th node
-
-        Movie[] graphlist = new Movie[graph.numVertices()]; //stores the movies that we will need to access in an array
-        graphlist[source.getMovieId()-1] = source;
+        int s = indexOf(csr, source);
+        dist[s] = 0;
+        minprio.push(0, s); //Source node has priority 0
 
-        while (true){ //since the min priority queue isn't initialized with all nodes, we know it runs out of nodes when it breaks
-            try {
-                int u = minprio.topElement(); //store the top node int
-                minprio.pop(); //remove it from the queue
-                Movie currentmovie = graphlist[u-1]; //grabs the movie from the list
-                List<Movie> newneighbors = graph.getNeighbors(currentmovie); //get a list of the neighbors for u
-                for (int i = 0; i < newneighbors.size(); i++) {
-                    Movie nextmovie = newneighbors.get(i); // next movie from the list of neighbors
-                    graphlist[nextmovie.getMovieId()-1] = nextmovie; //adds it to the movie list
-                    int alt = dist[u-1] + 1; //1 is the weight of u to v, which is always 1 because  all weights are 1
-                    int v = nextmovie.getMovieId();
-                    if (alt < dist[v-1]) { //if the new path is better than the old one
-                        dist[v-1] = alt; //distance is now alt
-                        prev[v-1] = u; //previous for this node is now the previous node
-                        if (minprio.isPresent(v)) {
-                            minprio.changePriority(v, alt); //if the node is in the graph, change it to the new prio
-                        } else {
-                            minprio.push(alt, v); //else it needs to be added to the queue
-                        }
+        while (!minprio.isEmpty()){ //nodes leave the queue in order of distance
+            int u = minprio.topElement(); //store the top node int
+            minprio.pop(); //remove it from the queue
+            for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) { //walk the neighbors of u
+                int v = csr.targets[k];
+                double alt = dist[u] + (weights == null ? 1 : weights[k]); //the weight of u to v
+                if (alt < dist[v]) { //if the new path is better than the old one
+                    if (integral && alt >= Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Path lengths from " + source + " exceed " + (Integer.MAX_VALUE - 1));
+                    }
+                    dist[v] = alt; //distance is now alt
+                    prev[v] = u; //previous for this node is now the previous node
+                    int priority = integral ? (int)alt : Float.floatToIntBits((float)alt);
+                    if (minprio.isPresent(v)) {
+                        minprio.changePriority(v, priority); //if the node is in the queue, decrease its key
+                    } else {
+                        minprio.push(priority, v); //else it needs to be added to the queue
                     }
                 }
             }
-            catch (IndexOutOfBoundsException e) {
-                break;
-            }
         }
-        return prev;
+        return new ShortestPathTree<V>(csr, s, dist, prev);
     }
+
+	/**
+	 * Finds a shortest path between two vertices with a breadth-first search that stops as
+	 * soon as the target is reached. Every edge has weight 1.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @param target The end vertex
+	 * @return The vertices of a shortest path from source to target inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public static <V> List<V> shortestPath(GraphIfc<V> graph, V source, V target) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		int t = indexOf(csr, target);
+		Search forward = SEARCHES.get()[0].reset(csr.numVertices());
+		forward.start(s);
+		while (!forward.isSeen(t) && forward.head < forward.tail) {
+			int u = forward.queue[forward.head++];
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int w = csr.targets[k];
+				if (!forward.isSeen(w)) {
+					forward.visit(w, u);
+					if (w == t) {
+						break;
+					}
+				}
+			}
+		}
+		List<V> path = new ArrayList<V>();
+		if (forward.isSeen(t)) {
+			forward.addPathTo(t, csr, path);
+		}
+		return path;
+	}
+	
+	/**
+	 * Finds a shortest path between two vertices by searching forward from the source and
+	 * backward from the target, a whole level at a time, always on the side whose frontier
+	 * is smaller. Once a level reaches a vertex the other side has seen, the shortest
+	 * connection found in that level is a shortest path. Every edge has weight 1.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @param target The end vertex
+	 * @return The vertices of a shortest path from source to target inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public static <V> List<V> bidirectionalShortestPath(GraphIfc<V> graph, V source, V target) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		int t = indexOf(csr, target);
+		List<V> path = new ArrayList<V>();
+		if (s == t) {
+			path.add(source);
+			return path;
+		}
+		CSRGraph<V> reverse = csr.transpose();
+		Search[] searches = SEARCHES.get();
+		Search forward = searches[0].reset(csr.numVertices());
+		Search backward = searches[1].reset(csr.numVertices());
+		forward.start(s);
+		backward.start(t);
+		int best = Integer.MAX_VALUE;
+		int meetFrom = -1; //the path is s ... meetFrom -> meetTo ... t
+		int meetTo = -1;
+		while (best == Integer.MAX_VALUE && forward.head < forward.tail && backward.head < backward.tail) {
+			boolean isForward = forward.tail - forward.head <= backward.tail - backward.head;
+			Search near = isForward ? forward : backward;
+			Search far = isForward ? backward : forward;
+			CSRGraph<V> edges = isForward ? csr : reverse;
+			int levelEnd = near.tail;
+			while (near.head < levelEnd) {
+				int u = near.queue[near.head++];
+				for (int k = edges.offsets[u]; k < edges.offsets[u+1]; k++) {
+					int w = edges.targets[k];
+					if (far.isSeen(w) && near.dist[u] + 1 + far.dist[w] < best) {
+						best = near.dist[u] + 1 + far.dist[w];
+						meetFrom = isForward ? u : w;
+						meetTo = isForward ? w : u;
+					}
+					if (!near.isSeen(w)) {
+						near.visit(w, u);
+					}
+				}
+			}
+		}
+		if (best != Integer.MAX_VALUE) {
+			forward.addPathTo(meetFrom, csr, path);
+			for (int v = meetTo; v != -1; v = backward.parent[v]) {
+				path.add(csr.vertexAt(v));
+			}
+		}
+		return path;
+	}
+	
+	/**
+	 * Computes the distance of every vertex from a source with a direction-optimizing
+	 * breadth-first search. While the frontier is small each level pushes from the frontier
+	 * along out-edges (top-down). Once the frontier's out-edges outnumber a fraction of the
+	 * in-edges still unexplored, each level instead has every unvisited vertex scan its
+	 * in-neighbors for one in the frontier and stop at the first (bottom-up), which skips
+	 * most edges on dense graphs with a small diameter. Every edge has weight 1.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @return The distance of every vertex, indexed by its position in getVertices(), -1 if unreachable
+	 * @throws IllegalArgumentException if the source does not occur in the graph
+	 */
+	public static <V> int[] directionOptimizingBFS(GraphIfc<V> graph, V source) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		return directionOptimizingBFS(csr, indexOf(csr, source));
+	}
+	
+	/**
+	 * Runs directionOptimizingBFS from a dense id, for the searches of other classes
+	 * @param csr The graph to be searched, whose transpose gives the in-neighbors
+	 * @param s The dense id of the start vertex
+	 * @return The distance of every vertex, -1 if unreachable
+	 */
+	static int[] directionOptimizingBFS(CSRGraph<?> csr, int s) {
+		CSRGraph<?> reverse = csr.transpose();
+		int n = csr.numVertices();
+		int[] dist = new int[n];
+		Arrays.fill(dist, -1);
+		int[] frontier = new int[n];
+		int[] next = new int[n];
+		long[] inFrontier = new long[(n + 63) / 64];
+		dist[s] = 0;
+		frontier[0] = s;
+		int size = 1;
+		long frontierEdges = csr.degreeAt(s);
+		long unexploredEdges = csr.numEdges() - reverse.degreeAt(s); //in-edges of the unvisited vertices
+		boolean bottomUp = false;
+		int previousSize = 0;
+		for (int level = 1; size > 0; level++) {
+			if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+				bottomUp = true; //the frontier would touch most of the remaining edges
+			} else if (bottomUp && size < n / BETA && size < previousSize) {
+				bottomUp = false; //the frontier is shrinking, and scanning every unvisited vertex costs more
+			}
+			int nextSize = 0;
+			long nextEdges = 0;
+			if (bottomUp) {
+				for (int i = 0; i < size; i++) {
+					inFrontier[frontier[i] >>> 6] |= 1L << frontier[i];
+				}
+				for (int v = 0; v < n; v++) {
+					if (dist[v] == -1) {
+						for (int k = reverse.offsets[v]; k < reverse.offsets[v+1]; k++) {
+							int u = reverse.targets[k];
+							if ((inFrontier[u >>> 6] & (1L << u)) != 0) {
+								dist[v] = level;
+								next[nextSize++] = v;
+								nextEdges += csr.degreeAt(v);
+								unexploredEdges -= reverse.degreeAt(v);
+								break;
+							}
+						}
+					}
+				}
+				for (int i = 0; i < size; i++) {
+					inFrontier[frontier[i] >>> 6] = 0;
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					int u = frontier[i];
+					for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+						int v = csr.targets[k];
+						if (dist[v] == -1) {
+							dist[v] = level;
+							next[nextSize++] = v;
+							nextEdges += csr.degreeAt(v);
+							unexploredEdges -= reverse.degreeAt(v);
+						}
+					}
+				}
+			}
+			int[] swap = frontier;
+			frontier = next;
+			next = swap;
+			previousSize = size;
+			size = nextSize;
+			frontierEdges = nextEdges;
+		}
+		return dist;
+	}
+	
+	/**
+	 * Finds the chain of movies from source to target whose agreement strengths have the
+	 * largest product, reading each edge weight as the fraction of agreeing reviewers. This
+	 * is the shortest path when every edge costs -ln(weight), found with deltaStepping,
+	 * which stops as soon as the distance of the target is final.
+	 * @param graph A graph whose edge weights lie in (0, 1]
+	 * @param source The start vertex
+	 * @param target The end vertex
+	 * @param pool The pool the edge relaxations run on
+	 * @return The vertices of the chain from source to target inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph, or a weight lies outside (0, 1]
+	 */
+	public static <V> List<V> mostSimilarPath(GraphIfc<V> graph, V source, V target, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		int t = indexOf(csr, target);
+		double[] costs = edgeCosts(csr, w -> -Math.log(w), pool);
+		double[] dist = deltaStepping(csr, s, t, costs, defaultDelta(csr, costs), pool);
+		return new ShortestPathTree<V>(csr, s, dist, tightTree(csr, s, dist, costs, dist[t])).path(target);
+	}
+	
+	/**
+	 * Computes the shortest paths from a source with delta-stepping, using a bucket width
+	 * of the largest edge cost divided by the average degree.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @param cost Maps the weight of an edge to its cost, which must be finite and non-negative
+	 * @param pool The pool the edge relaxations run on
+	 * @return The distance of every vertex and a tree of shortest paths
+	 * @throws IllegalArgumentException if the source does not occur in the graph, or a cost is negative or not finite
+	 */
+	public static <V> ShortestPathTree<V> deltaStepping(GraphIfc<V> graph, V source, DoubleUnaryOperator cost,
+			ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		double[] costs = edgeCosts(csr, cost, pool);
+		double[] dist = deltaStepping(csr, s, -1, costs, defaultDelta(csr, costs), pool);
+		return new ShortestPathTree<V>(csr, s, dist, tightTree(csr, s, dist, costs, Double.POSITIVE_INFINITY));
+	}
+	
+	/**
+	 * Computes the shortest paths from a source with delta-stepping. Tentative distances
+	 * are sorted into buckets of width delta, which are settled in order. Within a bucket
+	 * the light edges, those costing at most delta, are relaxed from every vertex of the
+	 * bucket at once and in parallel, repeatedly, until no vertex enters the bucket again.
+	 * The heavy edges cannot lead back into the bucket, so they are relaxed once afterwards.
+	 * Distances are lowered with compare-and-set on an AtomicLongArray, which needs no lock
+	 * because non-negative doubles order the same way as their bit patterns. Relaxations
+	 * may run with stale distances, so the parents are found once the distances are final,
+	 * by a pass over the edges that lie on shortest paths.
+	 * A small delta does little wasted work, like Dijkstra's algorithm, while a large one
+	 * exposes more parallel work per bucket, like Bellman-Ford.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @param cost Maps the weight of an edge to its cost, which must be finite and non-negative
+	 * @param delta The width of a bucket
+	 * @param pool The pool the edge relaxations run on
+	 * @return The distance of every vertex and a tree of shortest paths
+	 * @throws IllegalArgumentException if the source does not occur in the graph, a cost is negative or not finite,
+	 *         or delta is not positive or too small for the largest cost
+	 */
+	public static <V> ShortestPathTree<V> deltaStepping(GraphIfc<V> graph, V source, DoubleUnaryOperator cost,
+			double delta, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		double[] costs = edgeCosts(csr, cost, pool);
+		double[] dist = deltaStepping(csr, s, -1, costs, delta, pool);
+		return new ShortestPathTree<V>(csr, s, dist, tightTree(csr, s, dist, costs, Double.POSITIVE_INFINITY));
+	}
+	
+	/**
+	 * Returns the weakly connected components of a graph, the components when every edge
+	 * is treated as undirected. They are found with a union-find over an AtomicIntegerArray
+	 * of parents that the threads of the pool update with compare-and-set, each thread
+	 * uniting the endpoints of the edges of its own range of vertices. A root is always
+	 * linked under a smaller id and paths are halved by pointing a vertex at its grandparent,
+	 * so the parent of a vertex only ever decreases and concurrent updates cannot form a
+	 * cycle. Components are numbered in order of their smallest vertex. The result is
+	 * cached on frozen graphs, so later calls on the same CSRGraph are free.
+	 * @param graph The graph to be partitioned
+	 * @param pool The pool the unions run on
+	 * @return The weakly connected components
+	 */
+	public static <V> Components<V> weaklyConnectedComponents(GraphIfc<V> graph, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		synchronized (csr) {
+			if (csr.weakComponents == null) {
+				int n = csr.numVertices();
+				AtomicIntegerArray parent = new AtomicIntegerArray(n);
+				for (int v = 0; v < n; v++) {
+					parent.set(v, v);
+				}
+				Parallel.forRange(pool, 0, n, Parallel.grain(pool, n), (from, to) -> {
+					for (int u = from; u < to; u++) {
+						for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+							union(parent, u, csr.targets[k]);
+						}
+					}
+				});
+				int[] component = new int[n];
+				int count = 0;
+				for (int v = 0; v < n; v++) { //the root of a component is its smallest vertex
+					int root = find(parent, v);
+					component[v] = root == v ? count++ : component[root];
+				}
+				csr.weakComponents = new Components<V>(csr, component, count);
+			}
+			return csr.weakComponents;
+		}
+	}
+	
+	/**
+	 * Returns the strongly connected components of a graph, the largest sets of vertices
+	 * that can all reach one another. They are found with Tarjan's algorithm, run with an
+	 * explicit stack of vertices and edge positions instead of recursion, so a long path
+	 * cannot overflow the call stack. Components are numbered in the order Tarjan's algorithm
+	 * completes them, which is a reverse topological order: an edge from one component to
+	 * another always leads to a smaller id. The result is cached on frozen graphs.
+	 * @param graph The graph to be partitioned
+	 * @return The strongly connected components
+	 */
+	public static <V> Components<V> stronglyConnectedComponents(GraphIfc<V> graph) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		synchronized (csr) {
+			if (csr.strongComponents == null) {
+				int n = csr.numVertices();
+				int[] index = new int[n]; //order of discovery, -1 while undiscovered
+				int[] low = new int[n];   //smallest index reachable through the search tree and one more edge
+				int[] component = new int[n];
+				Arrays.fill(index, -1);
+				Arrays.fill(component, -1); //a discovered vertex is on the stack until it gets a component
+				int[] stack = new int[n];
+				int[] callVertex = new int[n];
+				int[] callEdge = new int[n];
+				int sp = 0;
+				int counter = 0;
+				int count = 0;
+				for (int r = 0; r < n; r++) {
+					if (index[r] != -1) {
+						continue;
+					}
+					index[r] = low[r] = counter++;
+					stack[sp++] = r;
+					callVertex[0] = r;
+					callEdge[0] = csr.offsets[r];
+					int depth = 1;
+					while (depth > 0) {
+						int u = callVertex[depth-1];
+						int k = callEdge[depth-1];
+						if (k < csr.offsets[u+1]) {
+							callEdge[depth-1]++;
+							int w = csr.targets[k];
+							if (index[w] == -1) { //descend into w
+								index[w] = low[w] = counter++;
+								stack[sp++] = w;
+								callVertex[depth] = w;
+								callEdge[depth] = csr.offsets[w];
+								depth++;
+							} else if (component[w] == -1) {
+								low[u] = Math.min(low[u], index[w]);
+							}
+						} else {
+							depth--;
+							if (low[u] == index[u]) { //u is the first vertex of its component
+								int w;
+								do {
+									w = stack[--sp];
+									component[w] = count;
+								} while (w != u);
+								count++;
+							}
+							if (depth > 0) {
+								int p = callVertex[depth-1];
+								low[p] = Math.min(low[p], low[u]);
+							}
+						}
+					}
+				}
+				csr.strongComponents = new Components<V>(csr, component, count);
+			}
+			return csr.strongComponents;
+		}
+	}
+	
+	/**
+	 * Determines whether there is a path from source to target. Most pairs are decided by
+	 * looking up the cached components: vertices in different weakly connected components
+	 * cannot reach each other, vertices in the same strongly connected component can, and
+	 * no path leads from a strongly connected component to one with a larger id. Only the
+	 * remaining pairs are searched.
+	 * @param graph The graph to be searched
+	 * @param source The start vertex
+	 * @param target The end vertex
+	 * @param pool The pool the weakly connected components are computed on, the first time
+	 * @return True if target can be reached from source
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public static <V> boolean isReachable(GraphIfc<V> graph, V source, V target, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int s = indexOf(csr, source);
+		int t = indexOf(csr, target);
+		Components<V> weak = weaklyConnectedComponents(csr, pool);
+		if (weak.componentAt(s) != weak.componentAt(t)) {
+			return false;
+		}
+		Components<V> strong = stronglyConnectedComponents(csr);
+		if (strong.componentAt(s) == strong.componentAt(t)) {
+			return true;
+		}
+		if (strong.componentAt(s) < strong.componentAt(t)) {
+			return false;
+		}
+		return !shortestPath(csr, source, target).isEmpty();
+	}
+	
+	/**
+	 * Computes the core number of every vertex: the largest k such that the vertex lies in
+	 * the k-core, the largest subgraph in which every vertex has at least k neighbors in the
+	 * subgraph. Edges are treated as undirected, so u and v are neighbors if either edge
+	 * between them exists and a pair joined both ways counts once; self-loops do not count.
+	 * Vertices are peeled in order of their remaining degree, kept in an int array sorted by
+	 * degree with the start of every degree's bin, so removing an edge moves its other end
+	 * one bin down in constant time and the whole decomposition takes time linear in the
+	 * size of the graph (Batagelj and Zaversnik).
+	 * @param graph The graph to be decomposed
+	 * @return The core number of every vertex, indexed by its position in getVertices()
+	 */
+	public static <V> int[] coreNumbers(GraphIfc<V> graph) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		CSRGraph<V> reverse = csr.transpose(); //in-neighbors in increasing order of id
+		int n = csr.numVertices();
+		//out-neighbors sorted by id, merged with the in-neighbors into one row per vertex
+		int[] sorted = Arrays.copyOf(csr.targets, csr.targets.length);
+		int[] offsets = new int[n + 1];
+		int[] neighbors = new int[csr.targets.length + reverse.targets.length];
+		for (int u = 0; u < n; u++) {
+			Arrays.sort(sorted, csr.offsets[u], csr.offsets[u+1]);
+			offsets[u+1] = mergeNeighbors(csr, sorted, reverse, u, neighbors, offsets[u]);
+		}
+		int[] degree = new int[n];
+		int maxDegree = 0;
+		for (int u = 0; u < n; u++) {
+			degree[u] = offsets[u+1] - offsets[u];
+			maxDegree = Math.max(maxDegree, degree[u]);
+		}
+		int[] bin = new int[maxDegree + 1]; //position in vert of the first vertex of each degree
+		for (int u = 0; u < n; u++) {
+			bin[degree[u]]++;
+		}
+		for (int d = 0, start = 0; d <= maxDegree; d++) {
+			int count = bin[d];
+			bin[d] = start;
+			start += count;
+		}
+		int[] vert = new int[n]; //the vertices in order of degree
+		int[] pos = new int[n];  //the position of each vertex in vert
+		for (int u = 0; u < n; u++) {
+			pos[u] = bin[degree[u]]++;
+			vert[pos[u]] = u;
+		}
+		for (int d = maxDegree; d > 0; d--) {
+			bin[d] = bin[d-1];
+		}
+		bin[0] = 0;
+		for (int i = 0; i < n; i++) {
+			int v = vert[i]; //the vertex of least remaining degree, whose degree is its core number
+			peel(offsets, neighbors, v, degree, bin, vert, pos);
+		}
+		return degree;
+	}
+	
+	/**
+	 * Returns the k-core of a graph, the subgraph induced by the vertices whose core number
+	 * is at least k. Every vertex in it has at least k neighbors in it, counting edges in
+	 * either direction and a pair joined both ways once. Vertices keep their relative order, and edges their order and weights.
+	 * @param graph The graph to be pruned
+	 * @param k The smallest core number kept
+	 * @return The k-core as a compact frozen graph, possibly empty
+	 */
+	public static <V> CSRGraph<V> kCore(GraphIfc<V> graph, int k) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int[] core = coreNumbers(csr);
+		boolean[] keep = new boolean[core.length];
+		for (int u = 0; u < core.length; u++) {
+			keep[u] = core[u] >= k;
+		}
+		return csr.subgraph(keep);
+	}
+	
+	/**
+	 * Main method for unit testing. Checks the searches against a plain breadth-first
+	 * search on seeded random digraphs and prints on how many graphs every check passed.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(13);
+		int graphs = 500;
+		int paths = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			CSRGraph<Integer> graph = CSRGraph.of(randomGraph(random, 1 + random.nextInt(80), 3));
+			int n = graph.numVertices();
+			int[] dist = new int[n];
+			int[] queue = new int[n];
+			boolean ok = true;
+			for (int q = 0; q < 20; q++) {
+				int s = random.nextInt(n);
+				int t = random.nextInt(n);
+				Arrays.fill(dist, -1);
+				PathStatistics.bfs(graph, s, dist, queue);
+				ok &= isShortestPath(graph, shortestPath(graph, s, t), s, t, dist[t]);
+				ok &= isShortestPath(graph, bidirectionalShortestPath(graph, s, t), s, t, dist[t]);
+			}
+			if (ok) {
+				paths++;
+			}
+		}
+		System.out.println("shortestPath and bidirectionalShortestPath matched BFS on " + paths + " of " + graphs + " graphs");
+		
+		int levels = 0;
+		for (int trial = 0; trial < graphs; trial++) { //dense enough for the search to go bottom-up
+			Graph<Integer> graph = randomGraph(random, 1 + random.nextInt(200), 1 + random.nextInt(30));
+			CSRGraph<Integer> csr = CSRGraph.of(graph);
+			int n = csr.numVertices();
+			int[] dist = new int[n];
+			int[] queue = new int[n];
+			boolean ok = true;
+			for (int v = 0; v < n; v++) {
+				List<Integer> in = new ArrayList<Integer>(graph.getInNeighbors(v));
+				in.sort(null);
+				ok &= in.equals(csr.transpose().getNeighbors(v)) && graph.inDegree(v) == in.size();
+			}
+			for (int q = 0; q < 5; q++) {
+				int s = random.nextInt(n);
+				Arrays.fill(dist, -1);
+				PathStatistics.bfs(csr, s, dist, queue);
+				ok &= Arrays.equals(dist, directionOptimizingBFS(graph, s));
+			}
+			if (ok) {
+				levels++;
+			}
+		}
+		System.out.println("In-neighbors and directionOptimizingBFS matched BFS on " + levels + " of " + graphs + " graphs");
+		
+		ForkJoinPool pool = new ForkJoinPool(2);
+		int components = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			Graph<Integer> graph = randomGraph(random, 1 + random.nextInt(60), 2);
+			CSRGraph<Integer> csr = CSRGraph.of(graph);
+			int n = csr.numVertices();
+			CSRGraph.Builder<Integer> both = new CSRGraph.Builder<Integer>(); //every edge in both directions
+			for (int v = 0; v < n; v++) {
+				both.addVertex(v);
+			}
+			for (int u = 0; u < n; u++) {
+				for (int v : csr.getNeighbors(u)) {
+					both.addEdge(u, v);
+					both.addEdge(v, u);
+				}
+			}
+			CSRGraph<Integer> undirected = both.build();
+			Components<Integer> weak = weaklyConnectedComponents(graph, pool);
+			Components<Integer> strong = stronglyConnectedComponents(graph);
+			int[][] reach = new int[n][n];
+			int[][] linked = new int[n][n];
+			int[] queue = new int[n];
+			for (int u = 0; u < n; u++) {
+				Arrays.fill(reach[u], -1);
+				Arrays.fill(linked[u], -1);
+				PathStatistics.bfs(csr, u, reach[u], queue);
+				PathStatistics.bfs(undirected, u, linked[u], queue);
+			}
+			boolean ok = true;
+			for (int u = 0; u < n; u++) {
+				for (int v = 0; v < n; v++) {
+					ok &= weak.sameComponent(u, v) == (linked[u][v] != -1);
+					ok &= strong.sameComponent(u, v) == (reach[u][v] != -1 && reach[v][u] != -1);
+					ok &= isReachable(graph, u, v, pool) == (reach[u][v] != -1);
+				}
+			}
+			if (ok) {
+				components++;
+			}
+		}
+		pool.shutdown();
+		System.out.println("Components and isReachable matched BFS on " + components + " of " + graphs + " graphs");
+		
+		ForkJoinPool workers = new ForkJoinPool(4);
+		int weighted = 0;
+		int trials = 100;
+		for (int trial = 0; trial < trials; trial++) { //large enough for RELAX_GRAIN to split the buckets
+			CSRGraph<Integer> graph = CSRGraph.of(randomWeightedGraph(random, 100 + random.nextInt(1400), 8));
+			int n = graph.numVertices();
+			DoubleUnaryOperator similarity = w -> -Math.log(w);
+			DoubleUnaryOperator weight = w -> w;
+			boolean ok = true;
+			for (int q = 0; q < 3; q++) {
+				int s = random.nextInt(n);
+				int t = random.nextInt(n);
+				double[] expected = dijkstra(graph, s, similarity);
+				ok &= isShortestTree(graph, deltaStepping(graph, s, similarity, workers), expected, similarity);
+				ok &= isShortestTree(graph, deltaStepping(graph, s, weight, 0.05, workers), dijkstra(graph, s, weight), weight);
+				List<Integer> path = mostSimilarPath(graph, s, t, workers);
+				if (expected[t] == Double.POSITIVE_INFINITY) {
+					ok &= path.isEmpty();
+				} else {
+					ok &= !path.isEmpty() && path.get(0) == s && path.get(path.size() - 1) == t
+							&& Math.abs(pathCost(graph, path, similarity) - expected[t]) <= 1e-9 * (1 + expected[t]);
+				}
+			}
+			if (ok) {
+				weighted++;
+			}
+		}
+		workers.shutdown();
+		System.out.println("deltaStepping and mostSimilarPath matched Dijkstra on " + weighted + " of " + trials + " graphs");
+		
+		int cores = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			int n = 1 + random.nextInt(50);
+			Graph<Integer> graph = randomGraph(random, n, 1 + random.nextInt(6));
+			for (int u = 0; u < n; u++) { //make some of the edges mutual
+				for (int v : new ArrayList<Integer>(graph.getNeighbors(u))) {
+					if (random.nextInt(3) == 0) {
+						graph.addEdge(v, u);
+					}
+				}
+			}
+			boolean[][] adjacent = new boolean[n][n]; //either edge exists, self-loops left out
+			for (int u = 0; u < n; u++) {
+				for (int v : graph.getNeighbors(u)) {
+					adjacent[u][v] = adjacent[v][u] = u != v;
+				}
+			}
+			int[] core = coreNumbers(graph);
+			boolean ok = true;
+			for (int k = 0; k <= n; k++) { //peel vertices of fewer than k neighbors until none is left
+				boolean[] alive = new boolean[n];
+				Arrays.fill(alive, true);
+				boolean changed = true;
+				while (changed) {
+					changed = false;
+					for (int u = 0; u < n; u++) {
+						if (alive[u] && countNeighbors(adjacent[u], alive) < k) {
+							alive[u] = false;
+							changed = true;
+						}
+					}
+				}
+				CSRGraph<Integer> kcore = kCore(graph, k);
+				int size = 0;
+				for (int u = 0; u < n; u++) {
+					ok &= alive[u] == (core[u] >= k) && alive[u] == kcore.containsNode(u);
+					size += alive[u] ? 1 : 0;
+				}
+				ok &= kcore.numVertices() == size;
+				for (int u : kcore.getVertices()) {
+					boolean[] inCore = new boolean[n];
+					for (int v : kcore.getNeighbors(u)) {
+						inCore[v] = true;
+					}
+					for (int v : kcore.getVertices()) {
+						inCore[v] |= kcore.edgeExists(v, u);
+					}
+					inCore[u] = false;
+					ok &= countNeighbors(inCore, alive) >= k;
+				}
+			}
+			if (ok) {
+				cores++;
+			}
+		}
+		System.out.println("coreNumbers and kCore matched peeling on " + cores + " of " + graphs + " graphs");
+	}
+	
+	/**
+	 * Returns an empty min priority queue for a shortest path search over n vertices. When
+	 * every edge weight is an integer of at most MAX_BUCKET_WEIGHT this is a bucket queue,
+	 * whose operations take constant time, and otherwise a 4-ary heap.
+	 * @param maxWeight The largest edge weight, or a negative value if the weights are not all integers
+	 */
+	private static IntPriorityQueue newQueue(int n, int maxWeight) {
+		if (maxWeight >= 0 && maxWeight <= MAX_BUCKET_WEIGHT) {
+			return new BucketQueue(n, maxWeight + 1);
+		}
+		return new IndexedHeap(n);
+	}
+	
+	/**
+	 * Returns the largest edge weight of a graph whose weights are all whole numbers, as newQueue takes it
+	 * @return 1 if the graph is unweighted, the largest weight if every weight is a whole number
+	 *         below Integer.MAX_VALUE, and -1 otherwise
+	 * @throws IllegalArgumentException if a weight is negative
+	 */
+	private static int maxIntegerWeight(CSRGraph<?> csr) {
+		if (csr.weights == null) {
+			return 1;
+		}
+		float max = 0;
+		boolean integral = true;
+		for (float w : csr.weights) {
+			if (w < 0) {
+				throw new IllegalArgumentException("Edge weight " + w + " is negative");
+			}
+			integral &= w == Math.rint(w);
+			max = Math.max(max, w);
+		}
+		return integral && max < Integer.MAX_VALUE ? (int)max : -1;
+	}
+	
+	/**
+	 * Applies a cost function to the weight of every edge, in parallel
+	 * @return The cost of the edge at each position of the graph
+	 */
+	private static double[] edgeCosts(CSRGraph<?> csr, DoubleUnaryOperator cost, ForkJoinPool pool) {
+		int m = csr.numEdges();
+		double[] costs = new double[m];
+		Parallel.forRange(pool, 0, m, Parallel.grain(pool, m), (from, to) -> {
+			for (int k = from; k < to; k++) {
+				costs[k] = cost.applyAsDouble(csr.weightAt(k));
+			}
+		});
+		for (int k = 0; k < m; k++) {
+			if (!(costs[k] >= 0) || costs[k] == Double.POSITIVE_INFINITY) {
+				throw new IllegalArgumentException("Edge cost " + costs[k] + " of weight " + csr.weightAt(k)
+						+ " is not finite and non-negative");
+			}
+		}
+		return costs;
+	}
+	
+	/**
+	 * Returns the largest edge cost divided by the average degree, so that a vertex has
+	 * about one light edge when the costs are spread evenly, or 1 if every cost is 0
+	 */
+	private static double defaultDelta(CSRGraph<?> csr, double[] costs) {
+		double maxCost = 0;
+		for (double c : costs) {
+			maxCost = Math.max(maxCost, c);
+		}
+		double delta = maxCost * csr.numVertices() / Math.max(1, csr.numEdges());
+		return delta > 0 ? delta : 1;
+	}
+	
+	/**
+	 * Runs delta-stepping from s, stopping once the distance of t is final if t is not -1.
+	 * Only the distances up to that of t are final then.
+	 * @return The distance of every vertex, POSITIVE_INFINITY if unreachable
+	 */
+	private static double[] deltaStepping(CSRGraph<?> csr, int s, int t, double[] costs, double delta,
+			ForkJoinPool pool) {
+		double maxCost = 0;
+		for (double c : costs) {
+			maxCost = Math.max(maxCost, c);
+		}
+		if (!(delta > 0) || maxCost / delta >= MAX_BUCKETS) {
+			throw new IllegalArgumentException("Delta " + delta + " is too small for edge costs up to " + maxCost);
+		}
+		//every queued distance lies within maxCost of the bucket being settled, so the buckets can be reused cyclically
+		int slots = (int)(maxCost / delta) + 2;
+		int n = csr.numVertices();
+		AtomicLongArray dist = new AtomicLongArray(n);
+		long[] expanded = new long[n]; //the distance each vertex last relaxed its light edges with
+		int[] settledIn = new int[n];  //the last phase whose heavy pass includes the vertex
+		for (int v = 0; v < n; v++) {
+			dist.set(v, Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+			expanded[v] = -1; //no distance has this bit pattern
+		}
+		IntList[] buckets = new IntList[slots];
+		for (int b = 0; b < slots; b++) {
+			buckets[b] = new IntList();
+		}
+		List<IntList> stripes = new ArrayList<IntList>(); //the vertices each thread lowered in the last step
+		ThreadLocal<IntList> stripe = ThreadLocal.withInitial(() -> {
+			IntList list = new IntList();
+			synchronized (stripes) {
+				stripes.add(list);
+			}
+			return list;
+		});
+		IntList frontier = new IntList();
+		IntList next = new IntList();
+		IntList settled = new IntList();
+		dist.set(s, Double.doubleToLongBits(0.0));
+		buckets[0].add(s);
+		long pending = 1;
+		int phase = 0;
+		for (long i = 0; pending > 0; i++) {
+			IntList bucket = buckets[(int)(i % slots)];
+			if (bucket.isEmpty()) {
+				continue;
+			}
+			phase++;
+			pending -= bucket.size();
+			frontier.clear();
+			for (int j = 0; j < bucket.size(); j++) {
+				addIfLowered(bucket.get(j), dist, expanded, frontier);
+			}
+			bucket.clear();
+			settled.clear();
+			while (!frontier.isEmpty()) {
+				for (int j = 0; j < frontier.size(); j++) {
+					int v = frontier.get(j);
+					if (settledIn[v] != phase) {
+						settledIn[v] = phase;
+						settled.add(v);
+					}
+				}
+				relax(csr, costs, delta, true, frontier, dist, stripe, pool);
+				next.clear();
+				for (IntList lowered : stripes) {
+					for (int j = 0; j < lowered.size(); j++) {
+						int v = lowered.get(j);
+						long b = bucketOf(dist, v, delta);
+						if (b <= i) {
+							addIfLowered(v, dist, expanded, next);
+						} else {
+							buckets[(int)(b % slots)].add(v);
+							pending++;
+						}
+					}
+					lowered.clear();
+				}
+				IntList swap = frontier;
+				frontier = next;
+				next = swap;
+			}
+			if (t != -1 && bucketOf(dist, t, delta) <= i) {
+				break; //t and every vertex before it on a shortest path are settled
+			}
+			relax(csr, costs, delta, false, settled, dist, stripe, pool);
+			for (IntList lowered : stripes) {
+				for (int j = 0; j < lowered.size(); j++) {
+					int v = lowered.get(j);
+					long b = Math.max(i + 1, bucketOf(dist, v, delta));
+					buckets[(int)(b % slots)].add(v);
+					pending++;
+				}
+				lowered.clear();
+			}
+		}
+		double[] result = new double[n];
+		for (int v = 0; v < n; v++) {
+			result[v] = Double.longBitsToDouble(dist.get(v));
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the distinct neighbors of u other than u, in or out, to out[start...] in
+	 * increasing order, merging its sorted out-row with its in-row in the transpose
+	 * @return The end of the row written, start plus the number of neighbors
+	 */
+	private static int mergeNeighbors(CSRGraph<?> csr, int[] sorted, CSRGraph<?> reverse, int u, int[] out, int start) {
+		int i = csr.offsets[u];
+		int iEnd = csr.offsets[u+1];
+		int j = reverse.offsets[u];
+		int jEnd = reverse.offsets[u+1];
+		int end = start;
+		int last = -1;
+		while (i < iEnd || j < jEnd) {
+			int w;
+			if (j == jEnd || (i < iEnd && sorted[i] <= reverse.targets[j])) {
+				w = sorted[i++];
+			} else {
+				w = reverse.targets[j++];
+			}
+			if (w != last && w != u) {
+				out[end++] = w;
+				last = w;
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * Removes v from the degrees of its neighbors neighbors[offsets[v]...offsets[v+1]-1],
+	 * for those still of larger degree than v, moving each into the bin below
+	 */
+	private static void peel(int[] offsets, int[] neighbors, int v, int[] degree, int[] bin, int[] vert, int[] pos) {
+		for (int k = offsets[v]; k < offsets[v+1]; k++) {
+			int w = neighbors[k];
+			if (degree[w] > degree[v]) { //swap w to the front of its bin, which then starts one later
+				int first = vert[bin[degree[w]]];
+				if (first != w) {
+					vert[pos[w]] = first;
+					pos[first] = pos[w];
+					vert[bin[degree[w]]] = w;
+					pos[w] = bin[degree[w]];
+				}
+				bin[degree[w]]++;
+				degree[w]--;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the root of the set of v, pointing each vertex passed at its grandparent
+	 */
+	private static int find(AtomicIntegerArray parent, int v) {
+		while (true) {
+			int p = parent.get(v);
+			if (p == v) {
+				return v;
+			}
+			int grandparent = parent.get(p);
+			if (grandparent != p) {
+				parent.compareAndSet(v, p, grandparent); //may fail if another thread moved v up first
+			}
+			v = grandparent;
+		}
+	}
+	
+	/**
+	 * Unites the sets of u and v, linking the larger root under the smaller
+	 */
+	private static void union(AtomicIntegerArray parent, int u, int v) {
+		while (true) {
+			u = find(parent, u);
+			v = find(parent, v);
+			if (u == v) {
+				return;
+			}
+			if (u < v) {
+				int swap = u;
+				u = v;
+				v = swap;
+			}
+			if (parent.compareAndSet(u, u, v)) { //fails if u stopped being a root, then retry
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the bucket of the current distance of v, Long.MAX_VALUE if it is infinite
+	 */
+	private static long bucketOf(AtomicLongArray dist, int v, double delta) {
+		return (long)(Double.longBitsToDouble(dist.get(v)) / delta);
+	}
+	
+	/**
+	 * Adds v to a frontier unless it already relaxed its light edges with its current distance
+	 */
+	private static void addIfLowered(int v, AtomicLongArray dist, long[] expanded, IntList frontier) {
+		long d = dist.get(v);
+		if (expanded[v] != d) {
+			expanded[v] = d;
+			frontier.add(v);
+		}
+	}
+	
+	/**
+	 * Relaxes the light or the heavy out-edges of the given vertices in parallel. Every
+	 * vertex whose distance is lowered is added to the stripe of the thread that lowered it.
+	 */
+	private static void relax(CSRGraph<?> csr, double[] costs, double delta, boolean light, IntList vertices,
+			AtomicLongArray dist, ThreadLocal<IntList> stripe, ForkJoinPool pool) {
+		int grain = Math.max(RELAX_GRAIN, Parallel.grain(pool, vertices.size()));
+		Parallel.forRange(pool, 0, vertices.size(), grain, (from, to) -> {
+			IntList lowered = stripe.get();
+			for (int j = from; j < to; j++) {
+				int u = vertices.get(j);
+				double du = Double.longBitsToDouble(dist.get(u));
+				for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+					if ((costs[k] <= delta) != light) {
+						continue;
+					}
+					int v = csr.targets[k];
+					long alt = Double.doubleToLongBits(du + costs[k]);
+					long old = dist.get(v);
+					while (alt < old) {
+						if (dist.compareAndSet(v, old, alt)) {
+							lowered.add(v);
+							break;
+						}
+						old = dist.get(v);
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Finds the parents of a shortest path tree from final distances with a breadth-first
+	 * search from s over the edges (u, v) with dist[u] + cost == dist[v]. The last relaxation
+	 * that lowered a vertex used such an edge, so every reachable vertex is found, and the
+	 * search cannot close a cycle of zero-cost edges. Vertices farther than limit are not expanded.
+	 * @return The parent of every vertex found, -1 for s and the vertices not found
+	 */
+	private static int[] tightTree(CSRGraph<?> csr, int s, double[] dist, double[] costs, double limit) {
+		int n = csr.numVertices();
+		int[] parent = new int[n];
+		Arrays.fill(parent, -1);
+		boolean[] seen = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = s;
+		seen[s] = true;
+		while (head < tail) {
+			int u = queue[head++];
+			if (dist[u] > limit) {
+				continue;
+			}
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int v = csr.targets[k];
+				if (!seen[v] && dist[u] + costs[k] == dist[v]) {
+					seen[v] = true;
+					parent[v] = u;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return parent;
+	}
+	
+	/**
+	 * Returns a graph on the vertices 0...n-1 with up to edgesPerVertex*n random edges, for main()
+	 */
+	private static Graph<Integer> randomGraph(Random random, int n, int edgesPerVertex) {
+		Graph<Integer> graph = new Graph<Integer>();
+		for (int v = 0; v < n; v++) {
+			graph.addVertex(v);
+		}
+		int m = random.nextInt(edgesPerVertex * n + 1);
+		for (int e = 0; e < m; e++) {
+			graph.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		return graph;
+	}
+	
+	/**
+	 * Returns a graph on the vertices 0...n-1 with up to edgesPerVertex*n random edges of
+	 * weights in (0, 1], for main()
+	 */
+	private static Graph<Integer> randomWeightedGraph(Random random, int n, int edgesPerVertex) {
+		Graph<Integer> graph = new Graph<Integer>();
+		for (int v = 0; v < n; v++) {
+			graph.addVertex(v);
+		}
+		int m = random.nextInt(edgesPerVertex * n + 1);
+		for (int e = 0; e < m; e++) {
+			graph.addEdge(random.nextInt(n), random.nextInt(n), 1 - random.nextFloat());
+		}
+		return graph;
+	}
+	
+	/**
+	 * Computes the distances from s with a plain sequential Dijkstra that scans for the
+	 * closest unsettled vertex, for main()
+	 */
+	private static double[] dijkstra(CSRGraph<Integer> graph, int s, DoubleUnaryOperator cost) {
+		int n = graph.numVertices();
+		double[] dist = new double[n];
+		boolean[] settled = new boolean[n];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist[s] = 0;
+		while (true) {
+			int u = -1;
+			for (int v = 0; v < n; v++) {
+				if (!settled[v] && dist[v] < Double.POSITIVE_INFINITY && (u == -1 || dist[v] < dist[u])) {
+					u = v;
+				}
+			}
+			if (u == -1) {
+				return dist;
+			}
+			settled[u] = true;
+			for (int k = graph.offsets[u]; k < graph.offsets[u+1]; k++) {
+				dist[graph.targets[k]] = Math.min(dist[graph.targets[k]], dist[u] + cost.applyAsDouble(graph.weightAt(k)));
+			}
+		}
+	}
+	
+	/**
+	 * Determines whether a tree holds the expected distances, and a path to every vertex
+	 * reached that runs along edges and costs its distance, for main()
+	 */
+	private static boolean isShortestTree(CSRGraph<Integer> graph, ShortestPathTree<Integer> tree, double[] expected,
+			DoubleUnaryOperator cost) {
+		for (int v = 0; v < expected.length; v++) {
+			double tolerance = 1e-9 * (1 + expected[v]);
+			if (expected[v] == Double.POSITIVE_INFINITY) {
+				if (tree.distance(v) != Double.POSITIVE_INFINITY || !tree.path(v).isEmpty()) {
+					return false;
+				}
+			} else if (Math.abs(tree.distance(v) - expected[v]) > tolerance
+					|| Math.abs(pathCost(graph, tree.path(v), cost) - expected[v]) > tolerance) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the total cost of the edges of a path, or infinity if one is missing, for main()
+	 */
+	private static double pathCost(CSRGraph<Integer> graph, List<Integer> path, DoubleUnaryOperator cost) {
+		double total = 0;
+		for (int i = 1; i < path.size(); i++) {
+			if (!graph.edgeExists(path.get(i - 1), path.get(i))) {
+				return Double.POSITIVE_INFINITY;
+			}
+			total += cost.applyAsDouble(graph.getWeight(path.get(i - 1), path.get(i)));
+		}
+		return total;
+	}
+	
+	/**
+	 * Returns the number of vertices v with both neighbor[v] and alive[v], for main()
+	 */
+	private static int countNeighbors(boolean[] neighbor, boolean[] alive) {
+		int count = 0;
+		for (int v = 0; v < neighbor.length; v++) {
+			count += neighbor[v] && alive[v] ? 1 : 0;
+		}
+		return count;
+	}
+	
+	/**
+	 * Determines whether a path found by a search runs along edges from s to t with
+	 * length edges, or is empty when length is -1, for main()
+	 */
+	private static boolean isShortestPath(CSRGraph<Integer> graph, List<Integer> path, int s, int t, int length) {
+		if (length == -1) {
+			return path.isEmpty();
+		}
+		if (path.size() != length + 1 || path.get(0) != s || path.get(length) != t) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (!graph.edgeExists(path.get(i), path.get(i + 1))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the dense id of a vertex that must be in the graph
+	 */
+	private static <V> int indexOf(CSRGraph<V> csr, V v) {
+		int u = csr.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return u;
+	}
+	
+	/*
+	 * The state of one breadth-first search: a queue and the distance and parent of every
+	 * vertex seen. A vertex counts as seen only if its mark equals the current generation,
+	 * so starting a new search costs nothing however many vertices the last one reached.
+	 */
+	private static class Search {
+		int[] mark = new int[0];
+		int[] dist = new int[0];
+		int[] parent = new int[0];
+		int[] queue = new int[0];
+		int generation = 0;
+		int head;
+		int tail;
+		
+		Search reset(int n) {
+			if (mark.length < n) {
+				mark = new int[n];
+				dist = new int[n];
+				parent = new int[n];
+				queue = new int[n];
+				generation = 0;
+			}
+			if (++generation == 0) { //wrapped around, clear the old marks once
+				Arrays.fill(mark, 0);
+				generation = 1;
+			}
+			head = 0;
+			tail = 0;
+			return this;
+		}
+		
+		boolean isSeen(int v) {
+			return mark[v] == generation;
+		}
+		
+		void start(int s) {
+			mark[s] = generation;
+			dist[s] = 0;
+			parent[s] = -1;
+			queue[tail++] = s;
+		}
+		
+		void visit(int v, int from) {
+			mark[v] = generation;
+			dist[v] = dist[from] + 1;
+			parent[v] = from;
+			queue[tail++] = v;
+		}
+		
+		/**
+		 * Appends the vertices from the start of the search to v, in order
+		 */
+		<V> void addPathTo(int v, CSRGraph<V> csr, List<V> path) {
+			int first = path.size();
+			for (int u = v; u != -1; u = parent[u]) {
+				path.add(csr.vertexAt(u));
+			}
+			for (int i = first, j = path.size() - 1; i < j; i++, j--) {
+				V swap = path.get(i);
+				path.set(i, path.get(j));
+				path.set(j, swap);
+			}
+		}
+	}
 }
@@ -38,7 +38,43 @@ public interface GraphIfc<V> {
 	 * @param v A vertex in the graph
 	 * @throws IllegalArgumentException if either vertex does not occur in the graph.
 	 */
-	public void addEdge(V u, V v);	
+	public void addEdge(V u, V v);
+
+	/**
+	 * Adds an edge between vertices u and v with a weight. This is an optional operation;
+	 * graphs that do not store weights throw UnsupportedOperationException.
+	 * @param u A vertex in the graph
+	 * @param v A vertex in the graph
+	 * @param weight The weight of the edge
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph.
+	 * @throws UnsupportedOperationException if the graph does not store edge weights
+	 */
+	public default void addEdge(V u, V v, float weight) {
+		throw new UnsupportedOperationException("This graph does not store edge weights");
+	}
+
+	/**
+	 * Determines whether the graph stores edge weights. An unweighted graph reports a
+	 * weight of 1 for every edge.
+	 * @return True if a weight was given for some edge
+	 */
+	public default boolean isWeighted() {
+		return false;
+	}
+
+	/**
+	 * Returns the weight of the edge from v to u. Edges added without a weight have weight 1.
+	 * @param v A node in the graph
+	 * @param u A node in the graph
+	 * @return The weight of the edge
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph, or there is no such edge
+	 */
+	public default float getWeight(V v, V u) {
+		if (!edgeExists(v, u)) {
+			throw new IllegalArgumentException("There is no edge from " + v + " to " + u);
+		}
+		return 1f;
+	}
 
 	/**
 	 * Returns the set of all vertices in the graph.
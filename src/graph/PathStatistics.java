@@ -0,0 +1,285 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import util.Parallel;
+
+/**
+ * Shortest path statistics of an unweighted graph: the eccentricity of every vertex, the
+ * diameter and its endpoints, the average path length and the number of ordered pairs
+ * (u, v), u != v, such that v can be reached from u. Pairs that cannot be reached are left
+ * out of all of them, as in the statistics screen of MovieLensAnalyzer.
+ *
+ * Two methods of computing them are offered, both running on a ForkJoinPool with O(V)
+ * memory per thread and no V x V matrix:
+ * <ul>
+ * <li> SINGLE_SOURCE runs one breadth-first search per vertex. </li>
+ * <li> BIT_PARALLEL advances 64 searches at once. Every vertex has a 64-bit visited word
+ *      and frontier word, one bit per source, and a level is expanded by OR-ing the
+ *      frontier words of each vertex into those of its neighbors. One pass over the edges
+ *      then serves 64 sources. </li>
+ * </ul>
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class PathStatistics<V> {
+
+	/**
+	 * How the statistics are computed
+	 */
+	public enum Method { SINGLE_SOURCE, BIT_PARALLEL }
+
+	private CSRGraph<V> graph;
+	private int[] eccentricity;
+	private int diameter;
+	private int diameterStart;
+	private int diameterEnd;
+	private long reachablePairs;
+	private long totalLength;
+
+	private PathStatistics(CSRGraph<V> graph, int[] eccentricity, long reachablePairs, long totalLength) {
+		this.graph = graph;
+		this.eccentricity = eccentricity;
+		this.reachablePairs = reachablePairs;
+		this.totalLength = totalLength;
+		diameter = 0;
+		diameterStart = -1;
+		diameterEnd = -1;
+		for (int u = 0; u < eccentricity.length; u++) {
+			if (eccentricity[u] > diameter) {
+				diameter = eccentricity[u];
+				diameterStart = u;
+			}
+		}
+		if (diameterStart != -1) { //the earliest vertex at that distance from the start
+			int[] dist = new int[eccentricity.length];
+			Arrays.fill(dist, -1);
+			int[] queue = new int[eccentricity.length];
+			int tail = bfs(graph, diameterStart, dist, queue);
+			diameterEnd = Integer.MAX_VALUE;
+			for (int i = 0; i < tail; i++) {
+				if (dist[queue[i]] == diameter) {
+					diameterEnd = Math.min(diameterEnd, queue[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the statistics of a graph with the bit-parallel search
+	 * @param graph The graph to be analyzed
+	 * @param pool The pool the searches run on
+	 * @return The statistics of the graph
+	 */
+	public static <V> PathStatistics<V> compute(GraphIfc<V> graph, ForkJoinPool pool) {
+		return compute(graph, pool, Method.BIT_PARALLEL);
+	}
+
+	/**
+	 * Computes the statistics of a graph
+	 * @param graph The graph to be analyzed
+	 * @param pool The pool the searches run on
+	 * @param method How the searches are run
+	 * @return The statistics of the graph
+	 */
+	public static <V> PathStatistics<V> compute(GraphIfc<V> graph, ForkJoinPool pool, Method method) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		int n = csr.numVertices();
+		int[] eccentricity = new int[n];
+		long[] totals = new long[2]; //reachable pairs, total length
+		if (method == Method.SINGLE_SOURCE) {
+			ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> {
+				int[] dist = new int[n];
+				Arrays.fill(dist, -1);
+				return new int[][] {dist, new int[n]};
+			});
+			Parallel.forRange(pool, 0, n, Parallel.grain(pool, n), (from, to) -> {
+				int[][] arrays = scratch.get();
+				long pairs = 0;
+				long length = 0;
+				for (int s = from; s < to; s++) {
+					int[] dist = arrays[0];
+					int[] queue = arrays[1];
+					int tail = bfs(csr, s, dist, queue);
+					eccentricity[s] = dist[queue[tail - 1]]; //the queue is in order of distance
+					pairs += tail - 1;
+					for (int i = 0; i < tail; i++) {
+						length += dist[queue[i]];
+						dist[queue[i]] = -1;
+					}
+				}
+				add(totals, pairs, length);
+			});
+		}
+		else {
+			int batches = (n + 63) / 64;
+			ThreadLocal<long[][]> scratch = ThreadLocal.withInitial(() -> new long[][] {
+				new long[n], new long[n], new long[n]
+			});
+			Parallel.forRange(pool, 0, batches, Parallel.grain(pool, batches), (from, to) -> {
+				long[][] words = scratch.get();
+				for (int b = from; b < to; b++) {
+					bitParallelBfs(csr, 64*b, Math.min(n, 64*b + 64), words[0], words[1], words[2],
+							eccentricity, totals);
+				}
+			});
+		}
+		return new PathStatistics<V>(csr, eccentricity, totals[0], totals[1]);
+	}
+
+	/**
+	 * Returns the eccentricity of a vertex, the length of the longest shortest path from it
+	 * @param v A vertex in the graph
+	 * @return The eccentricity of v, 0 if it cannot reach any other vertex
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int getEccentricity(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Cannot find eccentricity of vertex " + v + " not in graph.");
+		}
+		return eccentricity[u];
+	}
+
+	/**
+	 * Returns the smallest eccentricity among the vertices that can reach another vertex
+	 * @return The radius, or 0 if no vertex can reach another
+	 */
+	public int getRadius() {
+		int radius = 0;
+		for (int e : eccentricity) {
+			if (e > 0 && (radius == 0 || e < radius)) {
+				radius = e;
+			}
+		}
+		return radius;
+	}
+
+	/**
+	 * Returns the length of the longest shortest path
+	 * @return The diameter, or 0 if no vertex can reach another
+	 */
+	public int getDiameter() {
+		return diameter;
+	}
+
+	/**
+	 * Returns the start of a longest shortest path. Ties go to the earliest start and
+	 * end in the order of getVertices().
+	 * @return The start vertex, or null if no vertex can reach another
+	 */
+	public V getDiameterStart() {
+		return diameterStart == -1 ? null : graph.vertexAt(diameterStart);
+	}
+
+	/**
+	 * Returns the end of the path reported by getDiameterStart()
+	 * @return The end vertex, or null if no vertex can reach another
+	 */
+	public V getDiameterEnd() {
+		return diameterEnd == -1 ? null : graph.vertexAt(diameterEnd);
+	}
+
+	/**
+	 * Returns the number of ordered pairs of distinct vertices joined by a path
+	 * @return The number of reachable pairs
+	 */
+	public long getReachablePairs() {
+		return reachablePairs;
+	}
+
+	/**
+	 * Returns the average length of the shortest paths between reachable pairs
+	 * @return The average path length, or NaN if no vertex can reach another
+	 */
+	public double getAveragePathLength() {
+		return (double)totalLength / reachablePairs;
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	/**
+	 * Runs a breadth-first search from s. dist must be all -1 on entry; on return it holds
+	 * the distances of the vertices in queue[0...tail-1], in order of distance.
+	 * @return tail, the number of vertices reached including s
+	 */
+	static int bfs(CSRGraph<?> csr, int s, int[] dist, int[] queue) {
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = s;
+		dist[s] = 0;
+		while (head < tail) {
+			int u = queue[head++];
+			int next = dist[u] + 1;
+			for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+				int v = csr.targets[k];
+				if (dist[v] == -1) {
+					dist[v] = next;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Runs the searches from the sources first...last-1 (at most 64) together. Bit b of
+	 * a word belongs to source first+b. The three arrays must be all 0 on entry and are
+	 * left that way.
+	 */
+	private static void bitParallelBfs(CSRGraph<?> csr, int first, int last, long[] visited,
+			long[] frontier, long[] next, int[] eccentricity, long[] totals) {
+		int n = visited.length;
+		for (int s = first; s < last; s++) {
+			visited[s] = 1L << (s - first);
+			frontier[s] = visited[s];
+		}
+		long pairs = 0;
+		long length = 0;
+		int level = 0;
+		boolean active = true;
+		while (active) {
+			for (int u = 0; u < n; u++) { //push every frontier to the neighbors
+				long f = frontier[u];
+				if (f != 0) {
+					for (int k = csr.offsets[u]; k < csr.offsets[u+1]; k++) {
+						next[csr.targets[k]] |= f;
+					}
+				}
+			}
+			level++;
+			active = false;
+			long reached = 0; //the sources that reached some vertex on this level
+			for (int v = 0; v < n; v++) {
+				long fresh = next[v] & ~visited[v];
+				next[v] = 0;
+				frontier[v] = fresh;
+				if (fresh != 0) {
+					visited[v] |= fresh;
+					int count = Long.bitCount(fresh);
+					pairs += count;
+					length += (long)count * level;
+					reached |= fresh;
+					active = true;
+				}
+			}
+			while (reached != 0) {
+				eccentricity[first + Long.numberOfTrailingZeros(reached)] = level;
+				reached &= reached - 1;
+			}
+		}
+		Arrays.fill(visited, 0);
+		add(totals, pairs, length);
+	}
+
+	private static void add(long[] totals, long pairs, long length) {
+		synchronized (totals) {
+			totals[0] += pairs;
+			totals[1] += length;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of an all-pairs shortest path computation. Vertices are numbered by their
+ * dense ids 0...n-1 in the graph that was searched, and distances and predecessors are
+ * stored in flat row-major int arrays. A vertex is at distance 0 from itself, and
+ * unreachable pairs have distance n+1, which is longer than any path. The int methods
+ * take dense ids, and the others translate vertices to ids once per call.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class ShortestPathMatrix<V> {
+
+	private CSRGraph<V> graph;
+	private int n;
+	private int[] dist;
+	private int[] pred;
+
+	/**
+	 * Wraps the arrays of a finished computation
+	 * @param graph The graph that was searched
+	 * @param dist dist[i*n+j] is the length of the shortest path from i to j
+	 * @param pred pred[i*n+j] is the vertex before j on that path, or -1 if j is unreachable from i
+	 */
+	ShortestPathMatrix(CSRGraph<V> graph, int[] dist, int[] pred) {
+		this.graph = graph;
+		this.n = graph.numVertices();
+		this.dist = dist;
+		this.pred = pred;
+	}
+
+	/**
+	 * Returns the number of vertices
+	 * @return The number of vertices n
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Returns the distance reported for unreachable pairs
+	 * @return n+1
+	 */
+	public int unreachable() {
+		return n + 1;
+	}
+
+	/**
+	 * Returns the length of the shortest path between two vertices
+	 * @param i The start vertex
+	 * @param j The end vertex
+	 * @return The number of edges on the path, or n+1 if there is none
+	 */
+	public int distance(int i, int j) {
+		return dist[i*n + j];
+	}
+
+	/**
+	 * Determines whether one vertex can reach another
+	 * @param i The start vertex
+	 * @param j The end vertex
+	 * @return True if there is a path from i to j
+	 */
+	public boolean isReachable(int i, int j) {
+		return dist[i*n + j] <= n;
+	}
+
+	/**
+	 * Returns the vertex before j on a shortest path from i to j
+	 * @param i The start vertex
+	 * @param j The end vertex
+	 * @return The predecessor of j, i if j == i, or -1 if j is unreachable from i
+	 */
+	public int predecessor(int i, int j) {
+		return pred[i*n + j];
+	}
+
+	/**
+	 * Rebuilds a shortest path from the predecessors
+	 * @param i The start vertex
+	 * @param j The end vertex
+	 * @return The vertices of the path from i to j inclusive, or an empty array if there is none
+	 */
+	public int[] path(int i, int j) {
+		if (!isReachable(i, j)) {
+			return new int[0];
+		}
+		int[] path = new int[distance(i, j) + 1];
+		int v = j;
+		for (int p = path.length - 1; p >= 0; p--) {
+			path[p] = v;
+			v = pred[i*n + v];
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the dense id of a vertex
+	 * @param v A vertex in the graph
+	 * @return Its id in 0...n-1
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public int indexOf(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return u;
+	}
+
+	/**
+	 * Returns the vertex with a dense id
+	 * @param i A vertex id in 0...n-1
+	 * @return The vertex
+	 */
+	public V vertexAt(int i) {
+		return graph.vertexAt(i);
+	}
+
+	/**
+	 * Returns the length of the shortest path between two vertices
+	 * @param u The start vertex
+	 * @param v The end vertex
+	 * @return The number of edges on the path, or n+1 if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public int distance(V u, V v) {
+		return distance(indexOf(u), indexOf(v));
+	}
+
+	/**
+	 * Determines whether one vertex can reach another
+	 * @param u The start vertex
+	 * @param v The end vertex
+	 * @return True if there is a path from u to v
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public boolean isReachable(V u, V v) {
+		return isReachable(indexOf(u), indexOf(v));
+	}
+
+	/**
+	 * Rebuilds a shortest path between two vertices
+	 * @param u The start vertex
+	 * @param v The end vertex
+	 * @return The vertices of the path from u to v inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if either vertex does not occur in the graph
+	 */
+	public List<V> path(V u, V v) {
+		int[] ids = path(indexOf(u), indexOf(v));
+		List<V> path = new ArrayList<V>(ids.length);
+		for (int id : ids) {
+			path.add(graph.vertexAt(id));
+		}
+		return path;
+	}
+}
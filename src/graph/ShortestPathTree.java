@@ -0,0 +1,90 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a single-source shortest path computation over a weighted graph: the
+ * distance of every vertex from the source and the parent of every vertex on a shortest
+ * path to it. Distances are sums of edge costs, and vertices that cannot be reached are
+ * at distance POSITIVE_INFINITY.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class ShortestPathTree<V> {
+
+	private CSRGraph<V> graph;
+	private int source;
+	private double[] dist;
+	private int[] parent;
+
+	/**
+	 * Wraps the arrays of a finished computation
+	 * @param graph The graph that was searched
+	 * @param source The dense id of the source
+	 * @param dist dist[v] is the length of the shortest path from the source to v
+	 * @param parent parent[v] is the vertex before v on that path, or -1 for the source and unreachable vertices
+	 */
+	ShortestPathTree(CSRGraph<V> graph, int source, double[] dist, int[] parent) {
+		this.graph = graph;
+		this.source = source;
+		this.dist = dist;
+		this.parent = parent;
+	}
+
+	/**
+	 * Returns the vertex the paths start from
+	 * @return The source vertex
+	 */
+	public V getSource() {
+		return graph.vertexAt(source);
+	}
+
+	/**
+	 * Returns the length of the shortest path from the source to a vertex
+	 * @param v A vertex in the graph
+	 * @return The sum of the edge costs on the path, or POSITIVE_INFINITY if there is none
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public double distance(V v) {
+		return dist[idOf(v)];
+	}
+
+	/**
+	 * Determines whether the source can reach a vertex
+	 * @param v A vertex in the graph
+	 * @return True if there is a path from the source to v
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public boolean isReachable(V v) {
+		return dist[idOf(v)] != Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Rebuilds a shortest path from the parents
+	 * @param v A vertex in the graph
+	 * @return The vertices of the path from the source to v inclusive, or an empty list if there is none
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public List<V> path(V v) {
+		List<V> path = new ArrayList<V>();
+		int u = idOf(v);
+		if (dist[u] == Double.POSITIVE_INFINITY) {
+			return path;
+		}
+		for (; u != -1; u = parent[u]) {
+			path.add(graph.vertexAt(u));
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	private int idOf(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return u;
+	}
+}
@@ -0,0 +1,380 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.Parallel;
+
+/**
+ * Triangle counts and clustering coefficients of a graph. Edges are treated as undirected,
+ * so u and v are neighbors if either edge between them exists, and self-loops are ignored.
+ * A triangle is a set of three vertices that are all neighbors of one another.
+ *
+ * The vertices are ranked by degree, and every edge is kept only at its lower-ranked end,
+ * with the neighbors of each vertex sorted by rank. Each triangle is then found exactly
+ * once, as the common neighbors of the two lower-ranked vertices, and the high-degree
+ * vertices whose lists would be long keep few edges. Common neighbors are found by
+ * merging the two sorted lists, or by galloping through the longer one when the lengths
+ * differ a lot. The vertices are divided among the threads of a ForkJoinPool, each adding
+ * the per-vertex counts into its own array. No adjacency test such as edgeExists is used.
+ *
+ *  @author Adam Braude and Eli Corpron
+ */
+public class TriangleCounter<V> {
+
+	// Gallop through the longer list when it is at least this many times longer than the shorter
+	private static final int GALLOP_RATIO = 16;
+
+	private CSRGraph<V> graph;
+	private int[] degree;
+	private long[] triangles;
+	private long total;
+
+	private TriangleCounter(CSRGraph<V> graph, int[] degree, long[] triangles) {
+		this.graph = graph;
+		this.degree = degree;
+		this.triangles = triangles;
+		long sum = 0;
+		for (long t : triangles) {
+			sum += t;
+		}
+		total = sum / 3; //every triangle is counted at its three corners
+	}
+
+	/**
+	 * Counts the triangles of a graph
+	 * @param graph The graph to be analyzed
+	 * @param pool The pool the counting runs on
+	 * @return The triangle counts of the graph
+	 */
+	public static <V> TriangleCounter<V> count(GraphIfc<V> graph, ForkJoinPool pool) {
+		CSRGraph<V> csr = CSRGraph.of(graph);
+		CSRGraph<V> reverse = csr.transpose(); //in-neighbors in increasing order of id
+		int n = csr.numVertices();
+		int grain = Parallel.grain(pool, n);
+
+		//out-neighbors sorted by id, to be merged with the in-neighbors
+		int[] sorted = Arrays.copyOf(csr.targets, csr.targets.length);
+		Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+			for (int u = from; u < to; u++) {
+				Arrays.sort(sorted, csr.offsets[u], csr.offsets[u+1]);
+			}
+		});
+		int[] degree = new int[n];
+		Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+			for (int u = from; u < to; u++) {
+				degree[u] = neighbors(csr, sorted, reverse, u, null, null, 0);
+			}
+		});
+
+		//rank by increasing degree, ties by id
+		int maxDegree = 0;
+		for (int d : degree) {
+			maxDegree = Math.max(maxDegree, d);
+		}
+		int[] start = new int[maxDegree + 2];
+		for (int d : degree) {
+			start[d + 1]++;
+		}
+		for (int d = 0; d <= maxDegree; d++) {
+			start[d+1] += start[d];
+		}
+		int[] rank = new int[n];
+		for (int u = 0; u < n; u++) {
+			rank[u] = start[degree[u]]++;
+		}
+
+		//keep each edge at its lower-ranked end, rows indexed and sorted by rank
+		int[] offsets = new int[n + 1];
+		Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+			for (int u = from; u < to; u++) {
+				offsets[rank[u] + 1] = neighbors(csr, sorted, reverse, u, rank, null, 0);
+			}
+		});
+		for (int r = 0; r < n; r++) {
+			offsets[r+1] += offsets[r];
+		}
+		int[] higher = new int[offsets[n]];
+		Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+			for (int u = from; u < to; u++) {
+				neighbors(csr, sorted, reverse, u, rank, higher, offsets[rank[u]]);
+				Arrays.sort(higher, offsets[rank[u]], offsets[rank[u] + 1]);
+			}
+		});
+
+		List<long[]> partials = new ArrayList<long[]>(); //one per thread, indexed by rank
+		ThreadLocal<long[]> counts = ThreadLocal.withInitial(() -> {
+			long[] partial = new long[n];
+			synchronized (partials) {
+				partials.add(partial);
+			}
+			return partial;
+		});
+		Parallel.forRange(pool, 0, n, grain, (from, to) -> {
+			long[] partial = counts.get();
+			for (int a = from; a < to; a++) {
+				for (int i = offsets[a]; i < offsets[a+1]; i++) {
+					int b = higher[i];
+					long found = intersect(higher, offsets[a], offsets[a+1], offsets[b], offsets[b+1], partial);
+					partial[a] += found;
+					partial[b] += found;
+				}
+			}
+		});
+		long[] triangles = new long[n];
+		for (long[] partial : partials) {
+			for (int u = 0; u < n; u++) {
+				triangles[u] += partial[rank[u]];
+			}
+		}
+		return new TriangleCounter<V>(csr, degree, triangles);
+	}
+
+	/**
+	 * Returns the number of triangles in the graph
+	 * @return The number of triangles
+	 */
+	public long getTriangles() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of triangles a vertex belongs to
+	 * @param v A vertex in the graph
+	 * @return The number of triangles with v as a corner
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public long getTriangles(V v) {
+		return triangles[idOf(v)];
+	}
+
+	/**
+	 * Returns the local clustering coefficient of a vertex, the fraction of the pairs of
+	 * its neighbors that are neighbors of each other
+	 * @param v A vertex in the graph
+	 * @return The clustering coefficient of v, 0 if it has fewer than two neighbors
+	 * @throws IllegalArgumentException if the vertex does not occur in the graph
+	 */
+	public double getClusteringCoefficient(V v) {
+		return clustering(idOf(v));
+	}
+
+	/**
+	 * Returns the average of the local clustering coefficients of all vertices, counting
+	 * vertices with fewer than two neighbors as 0
+	 * @return The average clustering coefficient, or 0 if the graph has no vertices
+	 */
+	public double getAverageClustering() {
+		double sum = 0;
+		for (int u = 0; u < triangles.length; u++) {
+			sum += clustering(u);
+		}
+		return triangles.length == 0 ? 0 : sum / triangles.length;
+	}
+
+	/**
+	 * Returns the global clustering coefficient (transitivity), the fraction of the paths
+	 * of two edges whose ends are also neighbors
+	 * @return Three times the number of triangles over the number of two-edge paths, or 0 if there are none
+	 */
+	public double getTransitivity() {
+		long wedges = 0;
+		for (int d : degree) {
+			wedges += (long)d * (d - 1) / 2;
+		}
+		return wedges == 0 ? 0 : 3.0 * total / wedges;
+	}
+
+
+	/**
+	 * Main method for unit testing. Checks the counts on seeded random digraphs with mutual
+	 * edges and self-loops against a loop over all triples of vertices. The edge ends are
+	 * skewed towards small ids, so a few hubs have long lists and the intersections gallop.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(22);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		int graphs = 300;
+		int matched = 0;
+		for (int trial = 0; trial < graphs; trial++) {
+			int n = 1 + random.nextInt(150);
+			CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>();
+			for (int v = 0; v < n; v++) {
+				builder.addVertex(v);
+			}
+			boolean[][] adjacent = new boolean[n][n]; //either edge exists, self-loops left out
+			int m = random.nextInt(6 * n + 1);
+			for (int e = 0; e < m; e++) {
+				int u = random.nextInt(random.nextInt(n) + 1);
+				int v = random.nextInt(n);
+				builder.addEdge(u, v);
+				if (random.nextInt(4) == 0) { //a mutual edge, or a second self-loop
+					builder.addEdge(v, u);
+				}
+				adjacent[u][v] = adjacent[v][u] = u != v;
+			}
+			CSRGraph<Integer> graph = builder.build();
+			TriangleCounter<Integer> counter = count(graph, pool);
+
+			long[] corners = new long[n];
+			long total = 0;
+			long wedges = 0;
+			for (int u = 0; u < n; u++) {
+				for (int v = u + 1; v < n; v++) {
+					for (int w = v + 1; w < n; w++) {
+						if (adjacent[u][v] && adjacent[v][w] && adjacent[u][w]) {
+							corners[u]++;
+							corners[v]++;
+							corners[w]++;
+							total++;
+						}
+					}
+				}
+			}
+			boolean ok = counter.getTriangles() == total;
+			for (int u = 0; u < n; u++) {
+				long d = 0;
+				for (int v = 0; v < n; v++) {
+					d += adjacent[u][v] ? 1 : 0;
+				}
+				wedges += d * (d - 1) / 2;
+				double clustering = d < 2 ? 0 : corners[u] / (d * (d - 1) / 2.0);
+				ok &= counter.getTriangles(u) == corners[u];
+				ok &= Math.abs(counter.getClusteringCoefficient(u) - clustering) < 1e-12;
+			}
+			double transitivity = wedges == 0 ? 0 : 3.0 * total / wedges;
+			ok &= Math.abs(counter.getTransitivity() - transitivity) < 1e-12;
+			if (ok) {
+				matched++;
+			}
+		}
+		pool.shutdown();
+		System.out.println("TriangleCounter matched the count over all triples on " + matched + " of " + graphs + " graphs");
+	}
+
+
+	/*********************************************************
+	 * 				Private helper methods
+	 *********************************************************/
+
+	/**
+	 * Walks the undirected neighbors of u, merging its sorted out-neighbors with its
+	 * in-neighbors and skipping repeats and u itself. If rank is given only the neighbors
+	 * ranked above u are taken, and if out is given their ranks are written there from
+	 * position start.
+	 * @return The number of neighbors taken
+	 */
+	private static int neighbors(CSRGraph<?> csr, int[] sorted, CSRGraph<?> reverse, int u, int[] rank,
+			int[] out, int start) {
+		int i = csr.offsets[u];
+		int iEnd = csr.offsets[u+1];
+		int j = reverse.offsets[u];
+		int jEnd = reverse.offsets[u+1];
+		int count = 0;
+		int last = -1;
+		while (i < iEnd || j < jEnd) {
+			int w;
+			if (j == jEnd || (i < iEnd && sorted[i] <= reverse.targets[j])) {
+				w = sorted[i++];
+			} else {
+				w = reverse.targets[j++];
+			}
+			if (w == last || w == u) {
+				continue;
+			}
+			last = w;
+			if (rank == null || rank[w] > rank[u]) {
+				if (out != null) {
+					out[start + count] = rank[w];
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the values in both sorted ranges list[aStart...aEnd-1] and list[bStart...bEnd-1],
+	 * adding one to partial at each of them
+	 */
+	private static long intersect(int[] list, int aStart, int aEnd, int bStart, int bEnd, long[] partial) {
+		if (aEnd - aStart > bEnd - bStart) { //make a the shorter range
+			int swap = aStart;
+			aStart = bStart;
+			bStart = swap;
+			swap = aEnd;
+			aEnd = bEnd;
+			bEnd = swap;
+		}
+		long found = 0;
+		if ((long)(aEnd - aStart) * GALLOP_RATIO <= bEnd - bStart) {
+			int j = bStart;
+			for (int i = aStart; i < aEnd && j < bEnd; i++) {
+				j = gallop(list, j, bEnd, list[i]);
+				if (j < bEnd && list[j] == list[i]) {
+					partial[list[i]]++;
+					found++;
+					j++;
+				}
+			}
+		} else {
+			int i = aStart;
+			int j = bStart;
+			while (i < aEnd && j < bEnd) {
+				if (list[i] < list[j]) {
+					i++;
+				} else if (list[i] > list[j]) {
+					j++;
+				} else {
+					partial[list[i]]++;
+					found++;
+					i++;
+					j++;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the first position in list[lo...hi-1] holding at least x, or hi if there is
+	 * none, probing positions lo+1, lo+2, lo+4, ... and then searching the last gap in halves
+	 */
+	private static int gallop(int[] list, int lo, int hi, int x) {
+		if (lo >= hi || list[lo] >= x) {
+			return lo;
+		}
+		int step = 1;
+		while (lo + step < hi && list[lo + step] < x) { //list[lo] stays below x
+			lo += step;
+			step <<= 1;
+		}
+		int left = lo + 1;
+		int right = Math.min(lo + step, hi);
+		while (left < right) {
+			int mid = (left + right) >>> 1;
+			if (list[mid] < x) {
+				left = mid + 1;
+			} else {
+				right = mid;
+			}
+		}
+		return left;
+	}
+
+	private double clustering(int u) {
+		long pairs = (long)degree[u] * (degree[u] - 1) / 2;
+		return pairs == 0 ? 0 : (double)triangles[u] / pairs;
+	}
+
+	private int idOf(V v) {
+		int u = graph.indexOf(v);
+		if (u == -1) {
+			throw new IllegalArgumentException("Vertex " + v + " does not appear in the graph!");
+		}
+		return u;
+	}
+}
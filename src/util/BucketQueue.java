@@ -0,0 +1,276 @@
+package util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min priority queue for non-negative int priorities that lie close together (Dial's
+ * algorithm). Every priority has a bucket holding its elements in a doubly linked list
+ * threaded through int arrays indexed by element, so push, changePriority and isPresent
+ * take constant time and allocate nothing. Popping scans forward from the last priority
+ * popped to the next non-empty bucket.
+ *
+ * The priorities in the queue must always differ by less than its span, so that the buckets
+ * can be reused cyclically and only span of them are needed. A shortest path search with
+ * integer edge weights of at most C meets this with a span of C+1: every distance in its
+ * queue lies between that of the vertex being settled and that plus C.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class BucketQueue implements IntPriorityQueue {
+
+    private static final int NIL = -1;
+
+    private int[] head;     //first element of each bucket, NIL if empty
+    private int[] next;     //next element in the same bucket
+    private int[] prev;     //previous element in the same bucket, NIL for the first
+    private int[] priority; //priority of each element, NIL if it is not in the queue
+    private int span;
+    private int current;    //no element has a smaller priority, and none is current+span or more
+    private int size;
+
+    /**
+     *  Constructs an empty queue
+     *  @param capacity elements are ids 0...capacity-1
+     *  @param span the priorities in the queue always differ by less than span
+     */
+    public BucketQueue(int capacity, int span) {
+        if (span < 1) {
+            throw new IllegalArgumentException("The span must be positive, not " + span);
+        }
+        head = new int[span];
+        Arrays.fill(head, NIL);
+        next = new int[capacity];
+        prev = new int[capacity];
+        priority = new int[capacity];
+        Arrays.fill(priority, NIL);
+        this.span = span;
+        current = 0;
+        size = 0;
+    }
+
+    /**
+     *  Insert a new element into the queue with the
+     *  given priority.
+     *
+     *	@param priority priority of element to be inserted
+     *	@param element element to be inserted
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element does not already appear in the priority queue.</li>
+     *	<li> The priority differs by less than span from every priority in the queue.</li>
+     *	</ul>
+     */
+    public void push(int priority, int element) {
+        assert this.priority[element] == NIL;
+        link(priority, element);
+    }
+
+    /**
+     *  Remove the element with the smallest priority
+     *  @throws NoSuchElementException if the queue is empty
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public void pop() {
+        unlink(topElement());
+    }
+
+    /**
+     *  Returns the smallest priority in the queue
+     *  @return smallest priority value
+     *  @throws NoSuchElementException if the queue is empty
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public int topPriority() {
+        return priority[topElement()];
+    }
+
+    /**
+     *  Returns the element with the smallest priority. Among equal
+     *  priorities the one added to the bucket last comes first.
+     *  @return element with smallest priority
+     *  @throws NoSuchElementException if the queue is empty, where the scan for a
+     *          non-empty bucket would otherwise never end
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public int topElement() {
+        if (size == 0) {
+            throw new NoSuchElementException("The queue is empty");
+        }
+        while (head[current % span] == NIL) {
+            current++;
+        }
+        return head[current % span];
+    }
+
+    /**
+     *  Change the priority of an element already in the
+     *  priority queue
+     *
+     *  @param element element whose priority is to be changed
+     *  @param newpriority the new priority
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element exists in the priority queue</li>
+     *	<li> The priority differs by less than span from every other priority in the queue.</li>
+     *	</ul>
+     */
+    public void changePriority(int element, int newpriority) {
+        assert priority[element] != NIL;
+        unlink(element);
+        link(newpriority, element);
+    }
+
+    /**
+     *  Gets the priority of the element
+     *
+     *  @param element the element whose priority is returned
+     *  @return the priority value
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element exists in the priority queue</li>
+     *	</ul>
+     */
+    public int getPriority(int element) {
+        assert priority[element] != NIL;
+        return priority[element];
+    }
+
+    /**
+     *  Returns true if the priority queue contains no elements
+     *  @return true if the queue contains no elements, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     *  Returns true if the element exists in the priority queue.
+     *  @param element element to look for
+     *  @return true if the element exists, false otherwise
+     */
+    public boolean isPresent(int element) {
+        return element >= 0 && element < priority.length && priority[element] != NIL;
+    }
+
+    /**
+     *  Removes all elements from the priority queue
+     */
+    public void clear() {
+        for (int b = 0; b < span; b++) {
+            for (int e = head[b]; e != NIL; e = next[e]) {
+                priority[e] = NIL;
+            }
+            head[b] = NIL;
+        }
+        current = 0;
+        size = 0;
+    }
+
+    /**
+     *  Returns the number of elements in the priority queue
+     *  @return number of elements in the priority queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Tells which priority the queue pops first
+     *  @return true, the smallest priority comes first
+     */
+    public boolean isMinFirst() {
+        return true;
+    }
+
+
+    /*********************************************************
+     * 				Private helper methods
+     *********************************************************/
+
+    /**
+     * Adds an element to the front of the bucket of its priority
+     */
+    private void link(int p, int element) {
+        assert p >= 0;
+        if (size == 0 || p < current) {
+            current = p;
+        } else if (p - current >= span) {
+            topElement(); //move current up to the smallest priority so p gets a bucket of its own
+        }
+        int b = p % span;
+        priority[element] = p;
+        prev[element] = NIL;
+        next[element] = head[b];
+        if (head[b] != NIL) {
+            prev[head[b]] = element;
+        }
+        head[b] = element;
+        size++;
+    }
+
+    /**
+     * Removes an element from its bucket
+     */
+    private void unlink(int element) {
+        int b = priority[element] % span;
+        if (prev[element] == NIL) {
+            head[b] = next[element];
+        } else {
+            next[prev[element]] = next[element];
+        }
+        if (next[element] != NIL) {
+            prev[next[element]] = prev[element];
+        }
+        priority[element] = NIL;
+        size--;
+    }
+
+
+    public static void main(String[] args) {
+        System.out.println("Creating bucket queue q1 for elements 0-9 with span 4");
+        BucketQueue q1 = new BucketQueue(10, 4);
+
+        System.out.println("Is the queue empty: "+q1.isEmpty());
+        System.out.println("Does the smallest priority come first: "+q1.isMinFirst());
+
+        System.out.println("pushing elements 1, 2, 3 with priorities 2, 0, 3");
+        q1.push(2, 1);
+        q1.push(0, 2);
+        q1.push(3, 3);
+        System.out.println("The top element is: "+q1.topElement()+" with priority "+q1.topPriority());
+        System.out.println("Popping");
+        q1.pop();
+        System.out.println("Changing the priority of element 3 to 1");
+        q1.changePriority(3, 1);
+        System.out.println("The top element is now: "+q1.topElement()+" with priority "+q1.topPriority());
+        System.out.println("Popping");
+        q1.pop();
+        System.out.println("pushing element 4 with priority 4, reusing the bucket of priority 0");
+        q1.push(4, 4);
+        System.out.print("Popping in order:");
+        while (!q1.isEmpty()) {
+            System.out.print(" "+q1.topElement()+"("+q1.topPriority()+")");
+            q1.pop();
+        }
+        System.out.println();
+
+        System.out.println("Element 4 is in the queue: "+q1.isPresent(4));
+        System.out.println("The size of the queue is: "+q1.size());
+    }
+}
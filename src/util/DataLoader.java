@@ -5,15 +5,18 @@ import java.io.FileReader;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import data.Movie;
+import data.RatingMatrix;
 import data.Reviewer;
 
 
@@ -22,7 +25,20 @@ import data.Reviewer;
  * the number of movies in movies.csv to change the size of the data set. Only the
  * ratings for movies in movies.csv are retained. 
  * 
- * All movie ids are renumbered to be sequential from 1...M whereas user ids are not renumbered
+ * All movie ids are renumbered to be sequential from 1...M whereas user ids are not renumbered.
+ * The ratings are stored once, in a RatingMatrix, and the Movie and Reviewer objects are
+ * views over it.
+ * 
+ * After parsing the CSV files a binary snapshot of the data set is written next to the
+ * ratings file (see DatasetSnapshot). Later loads of the same files read the snapshot
+ * instead, as long as it is newer than both CSV files. No snapshot is written if either
+ * file could not be read, so a failed load is retried from the CSV files next time.
+ * 
+ * Ratings that are not a multiple of 0.5 between 0.5 and 5.0 cannot be stored in the
+ * RatingMatrix, so they are skipped: they appear in no movie, reviewer, count or graph.
+ * The number skipped is printed once after parsing, with the first such line.
+ * 
+ * Once the data is loaded the movie titles are indexed for searching (see TitleIndex).
  * 
  * @author alchambers
  * @version 2018
@@ -32,6 +48,15 @@ public class DataLoader {
 	private Map<Integer, Movie> movies;
 	private Map<Integer, Reviewer> reviewers;	
 	private Map<Integer, Integer> renumber;
+	private RatingMatrix ratings;
+	private TitleIndex titleIndex;
+	private int threads;
+	private boolean useSnapshots;
+	private String movieFilename;
+	private String reviewFilename;
+
+	// Appended to the ratings filename to name its snapshot
+	public static final String SNAPSHOT_SUFFIX = ".snapshot";
 
 	/**
 	 * Constructor 
@@ -40,17 +65,73 @@ public class DataLoader {
 		reviewers = new HashMap<>();
 		movies = new HashMap<>();
 		renumber = new HashMap<>();
+		threads = Runtime.getRuntime().availableProcessors();
+		useSnapshots = true;
+	}
+
+	/**
+	 * Sets the number of threads used to parse the ratings file
+	 * @param threads The number of threads, at least 1
+	 */
+	public void setThreads(int threads){
+		if(threads < 1){
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets whether loadData reads and writes binary snapshots
+	 * @param useSnapshots true to use snapshots (the default), false to always parse the CSV files
+	 */
+	public void setUseSnapshots(boolean useSnapshots){
+		this.useSnapshots = useSnapshots;
 	}
 
 	/**
-	 * Loads the movie title and ratings data
+	 * Loads the movie title and ratings data, from the snapshot of the two files if
+	 * an up-to-date one exists
 	 * @param movieFilename The filename for the movie titles file
 	 * @param reviewFilename The filename for the ratings file
 	 */
 	public void loadData(String movieFilename, String reviewFilename){
+		this.movieFilename = movieFilename;
+		this.reviewFilename = reviewFilename;
+		String snapshot = reviewFilename + SNAPSHOT_SUFFIX;
+		if(useSnapshots && DatasetSnapshot.isCurrent(snapshot, movieFilename, reviewFilename)) {
+			try {
+				useRatings(DatasetSnapshot.read(snapshot, movies, renumber));
+				return;
+			}
+			catch(IOException e) {
+				System.out.println(e);
+				movies.clear();
+				renumber.clear();
+			}
+		}
 		// These files *must* be read in this order
-		readMovieTitlesFile(movieFilename);		
-		readRatings(reviewFilename);
+		boolean loaded = readMovieTitlesFile(movieFilename);
+		loaded &= readRatings(reviewFilename);
+		if(useSnapshots && loaded) { // a snapshot of a failed read would hide the failure from later runs
+			try {
+				writeSnapshot(snapshot);
+			}
+			catch(IOException e) {
+				System.out.println("Could not write snapshot: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a binary snapshot of the loaded data set
+	 * @param filename The snapshot file to write
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void writeSnapshot(String filename) throws IOException {
+		if(ratings == null){
+			throw new IllegalStateException("No data has been loaded");
+		}
+		DatasetSnapshot.write(filename, movieFilename, reviewFilename, movies, renumber, ratings);
 	}
 
 
@@ -88,6 +169,20 @@ public class DataLoader {
 		return movies;
 	}
 
+	/**
+	 * Returns the matrix holding all ratings
+	 */
+	public RatingMatrix getRatingMatrix(){
+		return ratings;
+	}
+
+	/**
+	 * Returns the index for searching the movie titles
+	 */
+	public TitleIndex getTitleIndex(){
+		return titleIndex;
+	}
+
 
 
 	/**************************************************************
@@ -96,58 +191,56 @@ public class DataLoader {
 
 
 	/**
-	 * Reads and parses the ratings data 
+	 * Reads and parses the ratings data into a RatingMatrix 
+	 * @return true if the file was read, false if it could not be and no ratings are kept
 	 */
-	private void readRatings(String filename){
+	private boolean readRatings(String filename){
+		int[] externalIds = new int[renumber.size()];
+		int[] internalIds = new int[renumber.size()];
+		int i = 0;
+		for(Map.Entry<Integer, Integer> entry : new TreeMap<>(renumber).entrySet()) {
+			externalIds[i] = entry.getKey();
+			internalIds[i] = entry.getValue();
+			i++;
+		}
 		try{
-			BufferedReader input = new BufferedReader(new FileReader(filename));
-			input.readLine(); //read the header line
-			String line = input.readLine();						
-			while(line != null) {
-				String[] fields = line.split(",");
-				assert(fields.length == 4);
-
-				int userId = -1, movieId = -1;
-				double rating = -1;
-				try {
-					userId = Integer.parseInt(fields[0]);
-					movieId = Integer.parseInt(fields[1]);					
-					rating = Double.parseDouble(fields[2]);					
-				}
-				catch(NumberFormatException e){
-					System.out.println(line);
-					System.out.println(e);
-				}
-
-				// Only care about the movies that were in our movie title file
-				if(renumber.containsKey(movieId)) {
-					movieId = renumber.get(movieId);
-					// A new reviewer
-					if(!reviewers.containsKey(userId)) {
-						Reviewer r = new Reviewer(userId);
-						r.addMovie(movieId, rating);
-						reviewers.put(userId, r);					
-					}				
-					// An existing reviewer
-					else {
-						reviewers.get(userId).addMovie(movieId, rating);
-					}
-					movies.get(movieId).addRating(userId, rating);
-				}
-				line = input.readLine();
+			RatingsParser parser = new RatingsParser(filename, externalIds, internalIds, threads);
+			if(parser.getSkipped() > 0) {
+				System.out.println("Skipped " + parser.getSkipped() + " ratings that are not a multiple of 0.5 between 0.5 and 5.0, the first in:");
+				System.out.println(parser.getFirstSkipped());
 			}
-			input.close();
+			useRatings(new RatingMatrix(movies.size(), parser.getMovieIds(), parser.getUserIds(),
+					parser.getHalfStars(), parser.size()));
+			return true;
 		}
 		catch(IOException e){
 			System.out.println(System.getProperty("user.dir"));
 			System.out.println(e);
+			useRatings(new RatingMatrix(movies.size(), new int[0], new int[0], new byte[0], 0));
+			return false;
+		}
+	}
+
+	/**
+	 * Makes the movies and reviewers views over the given ratings and indexes the titles
+	 */
+	private void useRatings(RatingMatrix matrix){
+		ratings = matrix;
+		for(Movie movie : movies.values()) {
+			movie.useRatingMatrix(matrix);
+		}
+		reviewers.clear();
+		for(int r = 0; r < matrix.numReviewers(); r++) {
+			reviewers.put(matrix.reviewerId(r), new Reviewer(matrix, r));
 		}
+		titleIndex = new TitleIndex(movies.values());
 	}
 
 	/**
 	 * Reads and parses the data from movie_titles.txt
+	 * @return true if the whole file was read, false if reading it failed part way or at all
 	 */
-	private void readMovieTitlesFile(String filename){
+	private boolean readMovieTitlesFile(String filename){
 		try{
 			int id = 1;
 			BufferedReader input = new BufferedReader(new FileReader(filename));
@@ -187,9 +280,11 @@ public class DataLoader {
 				line = input.readLine();
 			}
 			input.close();
+			return true;
 		}
 		catch(IOException e){
 			System.out.println(e);
+			return false;
 		}
 	}
 
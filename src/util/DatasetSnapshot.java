@@ -0,0 +1,199 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import data.Movie;
+import data.RatingMatrix;
+
+
+/**
+ * Reads and writes a versioned binary snapshot of a loaded data set, so that later runs
+ * can skip parsing the CSV files. A snapshot holds:
+ * <ul>
+ * <li> A header with a magic number, the format version, and the path, length and
+ *      modification time of both CSV files it was built from </li>
+ * <li> For each movie 1...M: its external id (the renumber table), year, title and genres </li>
+ * <li> The RatingMatrix as primitive columns </li>
+ * </ul>
+ * Everything is little-endian and strings are stored as a length followed by UTF-8 bytes.
+ * Snapshots are read through a memory mapping.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class DatasetSnapshot {
+	private static final int MAGIC = 0x4D4C534E; // "MLSN"
+	private static final int VERSION = 1;
+
+	/**
+	 * Writes a snapshot of the data set
+	 * @param filename The snapshot file to write
+	 * @param movieFilename The movie titles file the data was loaded from
+	 * @param reviewFilename The ratings file the data was loaded from
+	 * @param movies The movies, keyed by their ids 1...M
+	 * @param renumber Maps external movie ids to internal ones
+	 * @param ratings The rating matrix
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public static void write(String filename, String movieFilename, String reviewFilename,
+			Map<Integer, Movie> movies, Map<Integer, Integer> renumber, RatingMatrix ratings) throws IOException {
+		int[] externalIds = new int[movies.size() + 1];
+		for (Map.Entry<Integer, Integer> entry : renumber.entrySet()) {
+			externalIds[entry.getValue()] = entry.getKey();
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(Integer.reverseBytes(MAGIC));
+		out.writeInt(Integer.reverseBytes(VERSION));
+		writeSource(out, movieFilename);
+		writeSource(out, reviewFilename);
+		out.writeInt(Integer.reverseBytes(movies.size()));
+		for (int id = 1; id <= movies.size(); id++) {
+			Movie movie = movies.get(id);
+			out.writeInt(Integer.reverseBytes(externalIds[id]));
+			out.writeInt(Integer.reverseBytes(movie.getYear()));
+			writeString(out, movie.getTitle());
+			out.writeInt(Integer.reverseBytes(movie.getGenres().size()));
+			for (String genre : movie.getGenres()) {
+				writeString(out, genre);
+			}
+		}
+		out.flush();
+
+		// Written to a temporary file first so that an interrupted write never leaves a broken snapshot
+		File target = new File(filename);
+		File temp = new File(filename + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.wrap(bytes.toByteArray());
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ratings.write(channel);
+		}
+		if (!temp.renameTo(target)) {
+			target.delete();
+			if (!temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Could not create " + filename);
+			}
+		}
+	}
+
+	/**
+	 * Determines whether a snapshot exists, has the current format, is newer than both CSV
+	 * files and was built from exactly those files as they are now
+	 * @param filename The snapshot file
+	 * @param movieFilename The movie titles file
+	 * @param reviewFilename The ratings file
+	 * @return true if the snapshot can be used instead of the CSV files
+	 */
+	public static boolean isCurrent(String filename, String movieFilename, String reviewFilename) {
+		File snapshot = new File(filename);
+		File movieFile = new File(movieFilename);
+		File reviewFile = new File(reviewFilename);
+		if (!snapshot.isFile() || snapshot.lastModified() < movieFile.lastModified()
+				|| snapshot.lastModified() < reviewFile.lastModified()) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return readHeader(buffer, movieFilename, reviewFilename);
+		}
+		catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by write
+	 * @param filename The snapshot file
+	 * @param movies Receives the movies, keyed by their ids 1...M
+	 * @param renumber Receives the map from external to internal movie ids
+	 * @return The rating matrix; the movies are not yet attached to it
+	 * @throws IOException if the snapshot cannot be read or is malformed
+	 */
+	public static RatingMatrix read(String filename, Map<Integer, Movie> movies,
+			Map<Integer, Integer> renumber) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException(filename + " is not a snapshot of this version");
+			}
+			for (int i = 0; i < 2; i++) {
+				readString(buffer);
+				buffer.getLong();
+				buffer.getLong();
+			}
+			int numMovies = buffer.getInt();
+			for (int id = 1; id <= numMovies; id++) {
+				int externalId = buffer.getInt();
+				int year = buffer.getInt();
+				Movie movie = new Movie(id, year, readString(buffer));
+				int numGenres = buffer.getInt();
+				for (int g = 0; g < numGenres; g++) {
+					movie.addGenre(readString(buffer));
+				}
+				renumber.put(externalId, id);
+				movies.put(id, movie);
+			}
+			return RatingMatrix.read(buffer);
+		}
+		catch (RuntimeException e) {
+			throw new IOException(filename + " is malformed", e);
+		}
+	}
+
+
+	/**************************************************************
+	 * 				Private Helper Methods
+	 **************************************************************/
+
+	/**
+	 * Checks the magic number, version and recorded CSV files of a snapshot
+	 */
+	private static boolean readHeader(ByteBuffer buffer, String movieFilename, String reviewFilename) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return false;
+		}
+		for (String source : new String[] {movieFilename, reviewFilename}) {
+			File file = new File(source);
+			if (!readString(buffer).equals(file.getAbsolutePath()) || buffer.getLong() != file.length()
+					|| buffer.getLong() != file.lastModified()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeSource(DataOutputStream out, String filename) throws IOException {
+		File file = new File(filename);
+		writeString(out, file.getAbsolutePath());
+		out.writeLong(Long.reverseBytes(file.length()));
+		out.writeLong(Long.reverseBytes(file.lastModified()));
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(Integer.reverseBytes(bytes.length));
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
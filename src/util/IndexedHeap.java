@@ -0,0 +1,341 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of int elements with int priorities, implemented as an indexed d-ary
+ * heap over parallel int arrays. Elements are ids 0...capacity-1, and the slot of every
+ * element in the heap is kept in a position array, so isPresent, getPriority and
+ * changePriority need no hashing and nothing is ever boxed or allocated after construction.
+ *
+ * The heap can order by smallest priority first (a min heap, as shortest path searches
+ * need) or largest first (like PriorityQueue), and has 2 or 4 children per node. A 4-ary
+ * heap is shallower, so pushes and priority decreases touch fewer slots, while pops compare
+ * more children that sit next to each other in memory.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class IndexedHeap implements IntPriorityQueue {
+
+    private static final int ABSENT = -1;
+
+    private int[] priorities; //priority of the element in each slot
+    private int[] elements;   //element in each slot
+    private int[] position;   //slot of each element, ABSENT if it is not in the heap
+    private int size;
+    private int arity;
+    private boolean minHeap;
+
+    /**
+     *  Constructs an empty 4-ary min heap
+     *  @param capacity elements are ids 0...capacity-1
+     */
+    public IndexedHeap(int capacity) {
+        this(capacity, 4, true);
+    }
+
+    /**
+     *  Constructs an empty heap
+     *  @param capacity elements are ids 0...capacity-1
+     *  @param arity number of children per node, 2 or 4
+     *  @param minHeap true to pop the smallest priority first, false to pop the largest first
+     *  @throws IllegalArgumentException if the arity is not 2 or 4
+     */
+    public IndexedHeap(int capacity, int arity, boolean minHeap) {
+        if (arity != 2 && arity != 4) {
+            throw new IllegalArgumentException("The arity must be 2 or 4, not " + arity);
+        }
+        priorities = new int[capacity];
+        elements = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, ABSENT);
+        size = 0;
+        this.arity = arity;
+        this.minHeap = minHeap;
+    }
+
+    /**
+     *  Insert a new element into the queue with the
+     *  given priority.
+     *
+     *	@param priority priority of element to be inserted
+     *	@param element element to be inserted
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element does not already appear in the priority queue.</li>
+     *	<li> The element is in 0...capacity-1.</li>
+     *	</ul>
+     */
+    public void push(int priority, int element) {
+        assert position[element] == ABSENT;
+        siftUp(size++, priority, element);
+    }
+
+    /**
+     *  Remove the element with the first priority
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public void pop() {
+        assert size > 0;
+        position[elements[0]] = ABSENT;
+        size--;
+        if (size > 0) {
+            siftDown(0, priorities[size], elements[size]);
+        }
+    }
+
+    /**
+     *  Returns the first priority in the queue, the smallest in a min heap
+     *  and the largest otherwise
+     *  @return first priority value
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public int topPriority() {
+        assert size > 0;
+        return priorities[0];
+    }
+
+    /**
+     *  Returns the element with the first priority
+     *  @return element with first priority
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The priority queue is non-empty.</li>
+     *	</ul>
+     */
+    public int topElement() {
+        assert size > 0;
+        return elements[0];
+    }
+
+    /**
+     *  Change the priority of an element already in the
+     *  priority queue, and restore heap order. Moving an element
+     *  towards the top (a decrease-key in a min heap) only walks up.
+     *
+     *  @param element element whose priority is to be changed
+     *  @param newpriority the new priority
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element exists in the priority queue</li>
+     *	</ul>
+     */
+    public void changePriority(int element, int newpriority) {
+        assert position[element] != ABSENT;
+        int slot = position[element];
+        if (before(newpriority, priorities[slot])) {
+            siftUp(slot, newpriority, element);
+        } else {
+            siftDown(slot, newpriority, element);
+        }
+    }
+
+    /**
+     *  Gets the priority of the element
+     *
+     *  @param element the element whose priority is returned
+     *  @return the priority value
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element exists in the priority queue</li>
+     *	</ul>
+     */
+    public int getPriority(int element) {
+        assert position[element] != ABSENT;
+        return priorities[position[element]];
+    }
+
+    /**
+     *  Replaces the contents of the queue with the given elements and builds
+     *  the heap bottom-up in linear time
+     *
+     *  @param newpriorities priorities of the elements
+     *  @param newelements elements to be inserted
+     *  @param count number of elements to take from the arrays
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The elements are distinct and in 0...capacity-1.</li>
+     *	</ul>
+     */
+    public void heapify(int[] newpriorities, int[] newelements, int count) {
+        clear();
+        System.arraycopy(newpriorities, 0, priorities, 0, count);
+        System.arraycopy(newelements, 0, elements, 0, count);
+        size = count;
+        for (int slot = 0; slot < count; slot++) {
+            assert position[elements[slot]] == ABSENT;
+            position[elements[slot]] = slot;
+        }
+        for (int slot = (count - 2) / arity; slot >= 0 && count > 1; slot--) {
+            siftDown(slot, priorities[slot], elements[slot]);
+        }
+    }
+
+    /**
+     *  Returns true if the priority queue contains no elements
+     *  @return true if the queue contains no elements, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     *  Returns true if the element exists in the priority queue.
+     *  @param element element to look for
+     *  @return true if the element exists, false otherwise
+     */
+    public boolean isPresent(int element) {
+        return element >= 0 && element < position.length && position[element] != ABSENT;
+    }
+
+    /**
+     *  Removes all elements from the priority queue
+     */
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            position[elements[slot]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    /**
+     *  Returns the number of elements in the priority queue
+     *  @return number of elements in the priority queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Tells which priority the queue pops first
+     *  @return true for a min heap, false if the largest priority comes first
+     */
+    public boolean isMinFirst() {
+        return minHeap;
+    }
+
+
+    /*********************************************************
+     * 				Private helper methods
+     *********************************************************/
+
+    /**
+     * Returns true if priority a belongs above priority b
+     */
+    private boolean before(int a, int b) {
+        return minHeap ? a < b : a > b;
+    }
+
+    /**
+     * Moves the hole at slot up until the element fits, then stores it there
+     */
+    private void siftUp(int slot, int priority, int element) {
+        while (slot > 0) {
+            int parent = (slot - 1) / arity;
+            if (!before(priority, priorities[parent])) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        place(slot, priority, element);
+    }
+
+    /**
+     * Moves the hole at slot down until the element fits, then stores it there
+     */
+    private void siftDown(int slot, int priority, int element) {
+        while (true) {
+            int first = arity*slot + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int last = Math.min(first + arity, size);
+            for (int child = first + 1; child < last; child++) {
+                if (before(priorities[child], priorities[best])) {
+                    best = child;
+                }
+            }
+            if (!before(priorities[best], priority)) {
+                break;
+            }
+            move(best, slot);
+            slot = best;
+        }
+        place(slot, priority, element);
+    }
+
+    private void move(int from, int to) {
+        priorities[to] = priorities[from];
+        elements[to] = elements[from];
+        position[elements[to]] = to;
+    }
+
+    private void place(int slot, int priority, int element) {
+        priorities[slot] = priority;
+        elements[slot] = element;
+        position[element] = slot;
+    }
+
+
+    public static void main(String[] args) {
+        System.out.println("Creating 4-ary min heap q1 for elements 0-9");
+        IndexedHeap q1 = new IndexedHeap(10);
+
+        System.out.println("Is the heap empty: "+q1.isEmpty());
+        System.out.println("Does the smallest priority come first: "+q1.isMinFirst());
+
+        for (int i = 1; i <= 7; i++) {
+            System.out.println("pushing element "+i+" with priority "+(10*i));
+            q1.push(10*i, i);
+        }
+
+        System.out.println("Popping");
+        q1.pop();
+        System.out.println("Popping");
+        q1.pop();
+
+        System.out.println("The top priority is: "+q1.topPriority());
+        System.out.println("The top element is: "+q1.topElement());
+
+        System.out.println("The priority of 6 is: "+q1.getPriority(6));
+        System.out.println("Decreasing the priority of element 6 to 5:");
+        q1.changePriority(6, 5);
+        System.out.println("The top element is now: "+q1.topElement());
+        System.out.println("Increasing the priority of element 6 to 100:");
+        q1.changePriority(6, 100);
+        System.out.println("The top element is now: "+q1.topElement());
+
+        System.out.println("Element 9 is in the heap: "+q1.isPresent(9));
+        System.out.println("Element 5 is in the heap: "+q1.isPresent(5));
+        System.out.println("The size of the heap is: "+q1.size());
+
+        System.out.println("Heapifying binary max heap q2 from priorities 4 9 1 7 for elements 0-3");
+        IndexedHeap q2 = new IndexedHeap(4, 2, false);
+        q2.heapify(new int[] {4, 9, 1, 7}, new int[] {0, 1, 2, 3}, 4);
+        System.out.print("Popping in order:");
+        while (!q2.isEmpty()) {
+            System.out.print(" "+q2.topElement()+"("+q2.topPriority()+")");
+            q2.pop();
+        }
+        System.out.println();
+
+        System.out.println("Clearing q1.");
+        q1.clear();
+        System.out.println("The size is now: "+q1.size());
+    }
+}
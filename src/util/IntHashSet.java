@@ -0,0 +1,132 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative ints using open addressing with linear probing. Elements are
+ * stored directly in an int array, so lookups and insertions take expected constant
+ * time without boxing.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class IntHashSet {
+
+    private static final int EMPTY = -1;
+
+    private int[] table;
+    private int size;
+
+    /**
+     *  Constructs an empty set
+     */
+    public IntHashSet() {
+        this(8);
+    }
+
+    /**
+     *  Constructs an empty set with room for the given number of elements
+     *  @param capacity number of elements the set can hold before growing
+     */
+    public IntHashSet(int capacity) {
+        int length = 8;
+        while (length < 2*capacity) {
+            length *= 2;
+        }
+        table = new int[length];
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    /**
+     *  Adds an element to the set
+     *  @param value element to be added
+     *  @return true if the element was added, false if it was already present
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> The element is non-negative.</li>
+     *	</ul>
+     */
+    public boolean add(int value) {
+        assert value >= 0;
+        if (2*(size + 1) > table.length) {
+            grow();
+        }
+        int mask = table.length - 1;
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     *  Returns true if the element is in the set
+     *  @param value element to look for
+     *  @return true if the element is present, false otherwise
+     */
+    public boolean contains(int value) {
+        int mask = table.length - 1;
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     *  Returns the number of elements in the set
+     *  @return number of elements in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Removes all elements from the set
+     */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+
+    /*********************************************************
+     * 				Private helper methods
+     *********************************************************/
+
+    /**
+     * Doubles the table and reinserts every element
+     */
+    private void grow() {
+        int[] old = table;
+        table = new int[2*old.length];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+        for (int value : old) {
+            if (value != EMPTY) {
+                int i = hash(value) & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Spreads consecutive ids over the table
+     */
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,107 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints. Used wherever an ArrayList&lt;Integer&gt; would
+ * box every element, such as the edge buffers filled while building a graph.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class IntList {
+
+    private int[] data;
+    private int size;
+
+    /**
+     *  Constructs an empty list
+     */
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     *  Constructs an empty list with room for the given number of elements
+     *  @param capacity initial capacity of the list
+     */
+    public IntList(int capacity) {
+        data = new int[Math.max(1, capacity)];
+        size = 0;
+    }
+
+    /**
+     *  Appends an element to the end of the list
+     *  @param value element to be appended
+     */
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, 2*data.length);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     *  Returns the element at the given position
+     *  @param i position of the element
+     *  @return the element at position i
+     *
+     *	<dt><b>Preconditions:</b><dd>
+     *	<ul>
+     *	<li> 0 &lt;= i &lt; size()</li>
+     *	</ul>
+     */
+    public int get(int i) {
+        assert i >= 0 && i < size;
+        return data[i];
+    }
+
+    /**
+     *  Replaces the element at the given position
+     *  @param i position of the element
+     *  @param value the new element
+     */
+    public void set(int i, int value) {
+        assert i >= 0 && i < size;
+        data[i] = value;
+    }
+
+    /**
+     *  Returns the number of elements in the list
+     *  @return number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Returns true if the list contains no elements
+     *  @return true if the list contains no elements, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     *  Removes all elements from the list, keeping its capacity
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     *  Copies the elements into an array
+     *  @param target array receiving the elements
+     *  @param offset position in target of the first element
+     */
+    public void copyTo(int[] target, int offset) {
+        System.arraycopy(data, 0, target, offset, size);
+    }
+
+    /**
+     *  Returns a copy of the elements as an array
+     *  @return an array of length size() holding the elements in order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
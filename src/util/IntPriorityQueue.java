@@ -0,0 +1,82 @@
+package util;
+
+/**
+ * A priority queue of int elements with int priorities. Each element appears at most
+ * once, and its priority can be changed while it is in the queue. Implementations differ
+ * in which priority comes first, and isMinFirst tells which: PriorityQueue pops the largest,
+ * BucketQueue the smallest, and IndexedHeap either, as chosen when it is built. Code that
+ * needs one order, such as a shortest path search, should check isMinFirst on the queue it
+ * is given.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public interface IntPriorityQueue {
+
+    /**
+     *  Insert a new element into the queue with the given priority.
+     *  @param priority priority of element to be inserted
+     *  @param element element to be inserted, not already in the queue
+     */
+    public void push(int priority, int element);
+
+    /**
+     *  Remove the element with the first priority. The queue must be non-empty.
+     */
+    public void pop();
+
+    /**
+     *  Returns the first priority in the queue. The queue must be non-empty.
+     *  @return first priority value
+     */
+    public int topPriority();
+
+    /**
+     *  Returns the element with the first priority. The queue must be non-empty.
+     *  @return element with first priority
+     */
+    public int topElement();
+
+    /**
+     *  Change the priority of an element already in the queue
+     *  @param element element whose priority is to be changed
+     *  @param newpriority the new priority
+     */
+    public void changePriority(int element, int newpriority);
+
+    /**
+     *  Gets the priority of an element in the queue
+     *  @param element the element whose priority is returned
+     *  @return the priority value
+     */
+    public int getPriority(int element);
+
+    /**
+     *  Returns true if the priority queue contains no elements
+     *  @return true if the queue contains no elements, false otherwise
+     */
+    public boolean isEmpty();
+
+    /**
+     *  Returns true if the element exists in the priority queue.
+     *  @param element element to look for
+     *  @return true if the element exists, false otherwise
+     */
+    public boolean isPresent(int element);
+
+    /**
+     *  Removes all elements from the priority queue
+     */
+    public void clear();
+
+    /**
+     *  Returns the number of elements in the priority queue
+     *  @return number of elements in the priority queue
+     */
+    public int size();
+
+    /**
+     *  Tells which priority the queue pops first
+     *  @return true if the smallest priority comes first, false if the largest does
+     */
+    public boolean isMinFirst();
+}
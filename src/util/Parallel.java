@@ -0,0 +1,101 @@
+package util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helpers for running loops on a ForkJoinPool.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class Parallel {
+
+    /**
+     * Pieces each thread's share of a loop is split into by default. A piece is the unit a
+     * thread that finishes early can steal, so more pieces balance uneven work better,
+     * while each piece costs a task; 16 per thread keeps both small.
+     */
+    public static final int CHUNKS_PER_THREAD = 16;
+
+    /**
+     * The body of a parallel loop, called on disjoint ranges of the iteration space
+     */
+    public interface RangeBody {
+        /**
+         * Runs the iterations from...to-1
+         * @param from first iteration of the range
+         * @param to one past the last iteration of the range
+         */
+        public void run(int from, int to);
+    }
+
+    /**
+     *  Runs body over from...to-1 on the pool, splitting the range in halves until the
+     *  pieces are at most grain iterations long. Returns once every piece has run.
+     *
+     *  @param pool the pool to run on
+     *  @param from first iteration
+     *  @param to one past the last iteration
+     *  @param grain largest range handed to a single call of body
+     *  @param body the loop body
+     */
+    public static void forRange(ForkJoinPool pool, int from, int to, int grain, RangeBody body) {
+        if (from >= to) {
+            return;
+        }
+        pool.invoke(new RangeTask(from, to, Math.max(1, grain), body));
+    }
+
+    /**
+     *  Returns a grain that splits n iterations into about CHUNKS_PER_THREAD pieces per
+     *  thread of the pool
+     *
+     *  @param pool the pool the loop will run on
+     *  @param n number of iterations
+     *  @return the grain to pass to forRange
+     */
+    public static int grain(ForkJoinPool pool, int n) {
+        return grain(pool, n, CHUNKS_PER_THREAD);
+    }
+
+    /**
+     *  Returns a grain that splits n iterations into about chunksPerThread pieces per
+     *  thread of the pool
+     *
+     *  @param pool the pool the loop will run on
+     *  @param n number of iterations
+     *  @param chunksPerThread pieces per thread, more pieces balance uneven work better
+     *  @return the grain to pass to forRange
+     */
+    public static int grain(ForkJoinPool pool, int n, int chunksPerThread) {
+        return Math.max(1, n / (pool.getParallelism() * chunksPerThread));
+    }
+
+    /*
+     * Splits a range in halves until it is small enough to run directly
+     */
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private int from;
+        private int to;
+        private int grain;
+        private RangeBody body;
+
+        RangeTask(int from, int to, int grain, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, grain, body), new RangeTask(mid, to, grain, body));
+        }
+    }
+}
@@ -14,7 +14,7 @@ import java.util.Map;
  * @version 9.21.18
  *
  */
-public class PriorityQueue {
+public class PriorityQueue implements IntPriorityQueue {
 
     private Map<Integer, Integer> location;
     private List<Pair<Integer, Integer>> heap;
@@ -166,6 +166,14 @@ public class PriorityQueue {
         return heap.size();
     }
 
+    /**
+     *  Tells which priority the queue pops first
+     *  @return false, a max heap pops the largest priority first
+     */
+    public boolean isMinFirst() {
+        return false;
+    }
+
 
 
     /*********************************************************
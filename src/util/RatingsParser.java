@@ -0,0 +1,314 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import data.Movie;
+
+
+/**
+ * Parses a MovieLens ratings file (userId,movieId,rating,timestamp) on several threads.
+ * The file is split into chunks that end on line boundaries, each chunk is memory-mapped
+ * and its digits are parsed straight from the bytes without creating Strings. The chunks'
+ * partial results are concatenated in file order, so a later rating of the same movie by
+ * the same user still wins.
+ *
+ * Only ratings of movies that appear in the renumbering table are kept, and their movie
+ * ids are replaced by the internal ones. Ratings that are not a multiple of 0.5 between
+ * 0.5 and 5.0 cannot be stored in half-stars, so they are skipped and counted instead;
+ * getSkipped and getFirstSkipped report them.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class RatingsParser {
+	// Largest chunk mapped at once; a mapping cannot exceed Integer.MAX_VALUE bytes
+	private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+	private int size;
+	private int[] movieIds;
+	private int[] userIds;
+	private byte[] halfStars;
+	private int skipped;
+	private String firstSkipped;
+
+	/**
+	 * Parses the ratings file
+	 * @param filename The ratings file, whose first line is a header
+	 * @param externalIds The movie ids of the movie titles file, in increasing order
+	 * @param internalIds The internal movie id for each entry of externalIds
+	 * @param threads The number of threads used for parsing
+	 * @throws IOException if the file cannot be read
+	 */
+	public RatingsParser(String filename, int[] externalIds, int[] internalIds, int threads) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long length = channel.size();
+			long start = lineEnd(channel, 0); // skip the header line
+			int numChunks = (int)Math.max((long)threads * Parallel.CHUNKS_PER_THREAD, (length - start) / MAX_CHUNK_BYTES + 1);
+
+			List<Chunk> chunks = new ArrayList<>();
+			for (int c = 1; c <= numChunks && start < length; c++) {
+				long end = c == numChunks ? length : lineEnd(channel, start + (length - start) / (numChunks - c + 1));
+				chunks.add(new Chunk(channel, start, end, externalIds, internalIds));
+				start = end;
+			}
+
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				for (Future<Chunk> done : pool.invokeAll(chunks)) {
+					done.get();
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+			finally {
+				pool.shutdown();
+			}
+
+			for (Chunk chunk : chunks) {
+				size += chunk.movieIds.size();
+				skipped += chunk.skipped;
+				if (firstSkipped == null) {
+					firstSkipped = chunk.firstSkipped;
+				}
+			}
+			movieIds = new int[size];
+			userIds = new int[size];
+			halfStars = new byte[size];
+			int pos = 0;
+			for (Chunk chunk : chunks) {
+				chunk.movieIds.copyTo(movieIds, pos);
+				chunk.userIds.copyTo(userIds, pos);
+				for (int i = 0; i < chunk.halfStars.size(); i++) {
+					halfStars[pos + i] = (byte) chunk.halfStars.get(i);
+				}
+				pos += chunk.movieIds.size();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of ratings kept
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns the internal movie id of each rating
+	 */
+	public int[] getMovieIds(){
+		return movieIds;
+	}
+
+	/**
+	 * Returns the number of ratings skipped for not being a multiple of 0.5 between 0.5 and 5.0
+	 */
+	public int getSkipped(){
+		return skipped;
+	}
+
+	/**
+	 * Returns the first line of the file whose rating was skipped, or null if none was
+	 */
+	public String getFirstSkipped(){
+		return firstSkipped;
+	}
+
+	/**
+	 * Returns the user id of each rating
+	 */
+	public int[] getUserIds(){
+		return userIds;
+	}
+
+	/**
+	 * Returns each rating in half-stars
+	 */
+	public byte[] getHalfStars(){
+		return halfStars;
+	}
+
+	/**
+	 * Returns the position just past the first newline at or after pos, or the file length
+	 */
+	private static long lineEnd(FileChannel channel, long pos) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long length = channel.size();
+		while (pos < length) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			for (int i = 0; i < n; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+		return length;
+	}
+
+	/*
+	 * Parses the complete lines between two file positions
+	 */
+	private static class Chunk implements Callable<Chunk> {
+		private FileChannel channel;
+		private long start;
+		private long end;
+		private int[] externalIds;
+		private int[] internalIds;
+		private IntList movieIds = new IntList();
+		private IntList userIds = new IntList();
+		private IntList halfStars = new IntList();
+		private int skipped;
+		private String firstSkipped;
+
+		// Position of the next byte to parse in the mapped chunk
+		private int pos;
+
+		Chunk(FileChannel channel, long start, long end, int[] externalIds, int[] internalIds) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.externalIds = externalIds;
+			this.internalIds = internalIds;
+		}
+
+		@Override
+		public Chunk call() throws IOException {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			int limit = buffer.limit();
+			pos = 0;
+			while (pos < limit) {
+				int lineStart = pos;
+				try {
+					if (buffer.get(pos) == '\n' || buffer.get(pos) == '\r') {
+						pos++;
+						continue;
+					}
+					int userId = parseInt(buffer, limit);
+					int movieId = parseInt(buffer, limit);
+					double rating = parseRating(buffer, limit);
+					skipLine(buffer, limit);
+
+					// Only care about the movies that were in our movie title file
+					int k = Arrays.binarySearch(externalIds, movieId);
+					if (k >= 0) {
+						int h = Movie.halfStars(rating);
+						if (h == -1) {
+							if (skipped++ == 0) {
+								firstSkipped = line(buffer, lineStart, limit);
+							}
+						}
+						else {
+							movieIds.add(internalIds[k]);
+							userIds.add(userId);
+							halfStars.add(h);
+						}
+					}
+				}
+				catch (NumberFormatException e) {
+					pos = lineStart;
+					System.out.println(line(buffer, lineStart, limit));
+					System.out.println(e);
+					skipLine(buffer, limit);
+				}
+			}
+			return this;
+		}
+
+		/*
+		 * Parses a non-negative integer field and steps over the comma after it
+		 */
+		private int parseInt(ByteBuffer buffer, int limit) {
+			int value = 0;
+			int digits = 0;
+			while (pos < limit) {
+				byte b = buffer.get(pos);
+				if (b < '0' || b > '9') {
+					break;
+				}
+				if (value > (Integer.MAX_VALUE - (b - '0')) / 10) {
+					throw new NumberFormatException("Number too large for an int");
+				}
+				value = 10*value + (b - '0');
+				digits++;
+				pos++;
+			}
+			expectComma(buffer, limit, digits);
+			return value;
+		}
+
+		/*
+		 * Parses a rating such as 4, 4.0 or 3.5 and steps over the comma after it
+		 */
+		private double parseRating(ByteBuffer buffer, int limit) {
+			long whole = 0;
+			long fraction = 0;
+			long scale = 1;
+			int digits = 0;
+			while (pos < limit && buffer.get(pos) >= '0' && buffer.get(pos) <= '9' && digits < 9) {
+				whole = 10*whole + (buffer.get(pos++) - '0');
+				digits++;
+			}
+			if (pos < limit && buffer.get(pos) == '.') {
+				pos++;
+				while (pos < limit && buffer.get(pos) >= '0' && buffer.get(pos) <= '9' && scale < 1000000000L) {
+					fraction = 10*fraction + (buffer.get(pos++) - '0');
+					scale *= 10;
+					digits++;
+				}
+			}
+			expectComma(buffer, limit, digits);
+			return whole + (double)fraction / scale;
+		}
+
+		private void expectComma(ByteBuffer buffer, int limit, int digits) {
+			if (digits == 0 || pos >= limit || buffer.get(pos) != ',') {
+				throw new NumberFormatException("Malformed ratings line");
+			}
+			pos++;
+		}
+
+		private void skipLine(ByteBuffer buffer, int limit) {
+			while (pos < limit && buffer.get(pos) != '\n') {
+				pos++;
+			}
+			pos++;
+		}
+
+		/*
+		 * Decodes one line for error messages
+		 */
+		private static String line(ByteBuffer buffer, int from, int limit) {
+			int to = from;
+			while (to < limit && buffer.get(to) != '\n' && buffer.get(to) != '\r') {
+				to++;
+			}
+			byte[] bytes = new byte[to - from];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(from + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import data.Movie;
+
+
+/**
+ * An index over movie titles for substring and prefix search. Titles are case-folded,
+ * and every movie is listed under each trigram (run of three characters) of its title.
+ * The lists are stored like the rows of a CSRGraph: the movies with trigram grams[g] are
+ * postings[offsets[g]] ... postings[offsets[g+1]-1], as positions into the movies sorted
+ * by id, so each list is a sorted int range.
+ *
+ * A substring query intersects the lists of its trigrams, shortest first, and then checks
+ * each remaining movie against the whole query, since a title can hold every trigram of
+ * the query without holding the query. Queries of fewer than three characters have no
+ * trigrams and are checked against every title. Prefix queries binary search the titles
+ * in sorted order. The index reflects the titles at the time it was built.
+ *
+ * @author Adam Braude and Eli Corpron
+ */
+public class TitleIndex {
+	private Movie[] movies;      // sorted by id
+	private String[] folded;     // folded[i] is the case-folded title of movies[i]
+	private long[] grams;        // sorted trigram keys, see key()
+	private int[] offsets;
+	private int[] postings;
+	private int[] byTitle;       // positions of the movies in order of folded title
+
+	/**
+	 * Builds the index
+	 * @param movies The movies to be searched
+	 */
+	public TitleIndex(Collection<Movie> movies) {
+		this.movies = movies.toArray(new Movie[0]);
+		Arrays.sort(this.movies, (a, b) -> Integer.compare(a.getMovieId(), b.getMovieId()));
+		int n = this.movies.length;
+		folded = new String[n];
+		Map<Long, IntList> lists = new HashMap<Long, IntList>();
+		for (int i = 0; i < n; i++) {
+			folded[i] = fold(this.movies[i].getTitle());
+			for (int c = 0; c + 3 <= folded[i].length(); c++) {
+				IntList list = lists.computeIfAbsent(key(folded[i], c), k -> new IntList(4));
+				if (list.isEmpty() || list.get(list.size() - 1) != i) { // a title may repeat a trigram
+					list.add(i);
+				}
+			}
+		}
+		grams = new long[lists.size()];
+		int g = 0;
+		for (long gram : lists.keySet()) {
+			grams[g++] = gram;
+		}
+		Arrays.sort(grams);
+		offsets = new int[grams.length + 1];
+		for (g = 0; g < grams.length; g++) {
+			offsets[g+1] = offsets[g] + lists.get(grams[g]).size();
+		}
+		postings = new int[offsets[grams.length]];
+		for (g = 0; g < grams.length; g++) {
+			IntList list = lists.get(grams[g]);
+			for (int k = 0; k < list.size(); k++) {
+				postings[offsets[g] + k] = list.get(k);
+			}
+		}
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> folded[a].compareTo(folded[b]));
+		byTitle = new int[n];
+		for (int i = 0; i < n; i++) {
+			byTitle[i] = order[i];
+		}
+	}
+
+	/**
+	 * Finds the movies whose titles contain a string, ignoring case
+	 * @param key The string to search for
+	 * @return The matching movies in order of id
+	 */
+	public List<Movie> containing(String key) {
+		String query = fold(key);
+		int[] candidates = candidates(query);
+		int count = candidates == null ? movies.length : candidates.length; // too short for a trigram, check every title
+		List<Movie> found = new ArrayList<Movie>();
+		for (int c = 0; c < count; c++) {
+			int i = candidates == null ? c : candidates[c];
+			if (folded[i].contains(query)) {
+				found.add(movies[i]);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the movies whose titles start with a string, ignoring case
+	 * @param prefix The start of the titles
+	 * @return The matching movies, most rated first and ties in order of id
+	 */
+	public List<Movie> startingWith(String prefix) {
+		String query = fold(prefix);
+		int lo = 0;
+		int hi = byTitle.length;
+		while (lo < hi) { // the first title not below the prefix
+			int mid = (lo + hi) >>> 1;
+			if (folded[byTitle[mid]].compareTo(query) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		List<Movie> found = new ArrayList<Movie>();
+		for (int i = lo; i < byTitle.length && folded[byTitle[i]].startsWith(query); i++) {
+			found.add(movies[byTitle[i]]);
+		}
+		found.sort((a, b) -> a.numRatings() != b.numRatings() ? Integer.compare(b.numRatings(), a.numRatings())
+				: Integer.compare(a.getMovieId(), b.getMovieId()));
+		return found;
+	}
+
+	/**
+	 * Returns the number of distinct trigrams in the titles
+	 * @return The number of posting lists
+	 */
+	public int numTrigrams() {
+		return grams.length;
+	}
+
+
+	/**************************************************************
+	 * 				Private Helper Methods
+	 **************************************************************/
+
+	/**
+	 * Intersects the posting lists of the trigrams of a folded query
+	 * @return The positions of the movies holding every trigram, or null if the query has none
+	 */
+	private int[] candidates(String query) {
+		int count = query.length() - 2;
+		if (count < 1) {
+			return null;
+		}
+		Integer[] order = new Integer[count]; // gram index of each trigram, shortest list first
+		for (int c = 0; c < count; c++) {
+			int g = Arrays.binarySearch(grams, key(query, c));
+			if (g < 0) {
+				return new int[0];
+			}
+			order[c] = g;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(offsets[a+1] - offsets[a], offsets[b+1] - offsets[b]));
+		int[] result = Arrays.copyOfRange(postings, offsets[order[0]], offsets[order[0] + 1]);
+		int size = result.length;
+		for (int c = 1; c < count && size > 0; c++) {
+			int g = order[c];
+			if (g == order[c-1]) { // the same trigram twice in the query
+				continue;
+			}
+			int from = offsets[g];
+			int kept = 0;
+			for (int i = 0; i < size; i++) { // binary search the longer list from the last match on
+				int k = Arrays.binarySearch(postings, from, offsets[g+1], result[i]);
+				if (k >= 0) {
+					result[kept++] = result[i];
+					from = k + 1;
+				} else {
+					from = -k - 1;
+				}
+			}
+			size = kept;
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Packs the three characters of s starting at c into one key
+	 */
+	private static long key(String s, int c) {
+		return ((long)s.charAt(c) << 32) | ((long)s.charAt(c+1) << 16) | s.charAt(c+2);
+	}
+
+	private static String fold(String s) {
+		return s.toLowerCase(Locale.ROOT);
+	}
+}